@@ -0,0 +1,135 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.configs.RedisConfiguration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+/**
+ * Drops the cache entries a change of one restaurant, menu or item can make stale, from Redis
+ * or the mapped file, and from the in-process caches of this instance, instead of flushing
+ * everything.
+ * Other instances drop the Redis entries too, but may serve their local copies for up to the
+ * ttl of their local caches.
+ */
+@Component
+@Log4j2
+public class CacheInvalidator {
+
+  private static final int DELETE_BATCH_SIZE = 500;
+
+  @Autowired
+  private transient RedisConfiguration redisConfiguration;
+
+  @Autowired
+  private transient NearbyCacheLayout nearbyCacheLayout;
+
+  @Autowired
+  private transient LocalNearbyCache localNearbyCache;
+
+  @Autowired
+  private transient SearchResultCache searchResultCache;
+
+  @Autowired
+  private transient NegativeCache negativeCache;
+
+  @Autowired(required = false)
+  private transient MappedNearbyCache mappedNearbyCache;
+
+  /**
+   * Drop the nearby entries that may hold a restaurant at the given location, and the
+   * searches it may be a hit of. Called with both the old and the new location of a moved
+   * restaurant.
+   */
+  public void invalidateRestaurantAt(double latitude, double longitude) {
+    List<String> keys = nearbyCacheLayout.keysContaining(latitude, longitude);
+    localNearbyCache.invalidate(keys);
+    if (mappedNearbyCache != null) {
+      mappedNearbyCache.invalidate(keys);
+    } else {
+      deleteNearbyEntries(keys);
+    }
+    invalidateSearchesAround(latitude, longitude);
+  }
+
+  /**
+   * Drop the searches a restaurant at the given location may be a hit of, after its menu or
+   * one of its items changed. Nearby entries do not hold menus, so they are kept.
+   */
+  public void invalidateSearchesAround(double latitude, double longitude) {
+    searchResultCache.invalidateAround(latitude, longitude);
+    negativeCache.invalidateSearchesAround(latitude, longitude);
+  }
+
+  /**
+   * Drop every cached search, for a change whose location is not known.
+   */
+  public void invalidateAllSearches() {
+    searchResultCache.invalidateAll();
+    negativeCache.invalidateAll();
+    if (mappedNearbyCache != null) {
+      mappedNearbyCache.invalidateEmpty();
+    }
+  }
+
+  /**
+   * Drop every nearby entry and every cached search, for a restaurant change whose old
+   * location is not known.
+   * Redis entries are dropped by moving to the next cache generation, rather than deleting
+   * them one by one.
+   */
+  public void invalidateAll() {
+    localNearbyCache.invalidateAll();
+    invalidateAllSearches();
+    if (mappedNearbyCache != null) {
+      mappedNearbyCache.invalidateAll();
+      return;
+    }
+
+    if (redisConfiguration.getJedisPool() == null) {
+      return;
+    }
+    try {
+      redisConfiguration.nextCacheGeneration();
+    } catch (Exception e) {
+      log.warn("Could not invalidate the nearby cache", e);
+    }
+  }
+
+  private void deleteNearbyEntries(List<String> keys) {
+    JedisPool jedisPool = redisConfiguration.getJedisPool();
+    if (jedisPool == null) {
+      return;
+    }
+    try (Jedis jedis = jedisPool.getResource()) {
+      deleteNearbyEntries(jedis, keys);
+    } catch (Exception e) {
+      log.warn("Could not invalidate {} nearby cache entries", keys.size(), e);
+    }
+  }
+
+  private void deleteNearbyEntries(Jedis jedis, List<String> keys) {
+    Pipeline pipeline = jedis.pipelined();
+    for (int from = 0; from < keys.size(); from += DELETE_BATCH_SIZE) {
+      List<String> batch = new ArrayList<>();
+      for (String key : keys.subList(from, Math.min(from + DELETE_BATCH_SIZE, keys.size()))) {
+        // The refresh info would otherwise outlive its entry.
+        batch.add(redisConfiguration.cacheKey(key));
+        batch.add(redisConfiguration.cacheKey(NearbyCacheLoader.refreshInfoKey(key)));
+      }
+      pipeline.del(batch.toArray(new String[0]));
+    }
+    pipeline.sync();
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import ch.hsr.geohash.GeoHash;
+import ch.hsr.geohash.WGS84Point;
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositoryservices.NearbyRestaurantsFinder;
+import com.crio.qeats.utils.GeoHashUtils;
+import com.crio.qeats.utils.GeoUtils;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * One entry per fine (precision 7) cell of the user, holding every restaurant that can be
+ * within the largest serving radius of some point of the cell.
+ */
+@Component
+@ConditionalOnProperty(name = "qeats.cache.nearby.layout", havingValue = "candidate",
+    matchIfMissing = true)
+public class CandidateCellCacheLayout implements NearbyCacheLayout {
+
+  @Autowired
+  private transient NearbyRestaurantsFinder nearbyRestaurantsFinder;
+
+  @Override
+  public boolean supportsRadius(double servingRadiusInKms) {
+    return servingRadiusInKms <= GlobalConstants.MAX_SERVING_RADIUS_IN_KMS;
+  }
+
+  @Override
+  public List<String> keysFor(double latitude, double longitude, double servingRadiusInKms) {
+    return Collections.singletonList(GeoHash.withCharacterPrecision(latitude, longitude,
+        GlobalConstants.GEOHASH_PRECISION).toBase32());
+  }
+
+  @Override
+  public List<String> keysContaining(double latitude, double longitude) {
+    // Every cell within the largest serving radius of the point, plus a cell radius, may hold
+    // it; the covering cells of that circle are a superset of them.
+    double halfDiagonalInKms = GeoHashUtils.cellRadiusInKms(
+        GeoHashUtils.cellOf(latitude, longitude, GlobalConstants.GEOHASH_PRECISION));
+    return GeoHashUtils.coveringCells(latitude, longitude,
+        GlobalConstants.MAX_SERVING_RADIUS_IN_KMS + halfDiagonalInKms,
+        GlobalConstants.GEOHASH_PRECISION);
+  }
+
+  @Override
+  public List<RestaurantEntity> load(String key) {
+    GeoHash geoHash = GeoHash.fromGeohashString(key);
+    WGS84Point centre = geoHash.getBoundingBoxCenterPoint();
+    double halfDiagonalInKms = GeoHashUtils.cellRadiusInKms(key);
+    double radiusInKms = GlobalConstants.MAX_SERVING_RADIUS_IN_KMS + halfDiagonalInKms;
+
+    return nearbyRestaurantsFinder
+        .findAllRestaurantsNear(centre.getLatitude(), centre.getLongitude(), radiusInKms).stream()
+        .filter(restaurantEntity -> GeoUtils.findDistanceInKm(centre.getLatitude(),
+            centre.getLongitude(), restaurantEntity.getLatitude(),
+            restaurantEntity.getLongitude()) <= radiusInKms)
+        .collect(Collectors.toList());
+  }
+}
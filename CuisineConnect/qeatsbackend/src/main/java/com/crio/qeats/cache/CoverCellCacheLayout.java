@@ -0,0 +1,79 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import ch.hsr.geohash.GeoHash;
+import ch.hsr.geohash.WGS84Point;
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositoryservices.NearbyRestaurantsFinder;
+import com.crio.qeats.utils.GeoHashUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * One entry per coarse cell, holding only the restaurants located inside that cell.
+ * The precision is picked from the serving radius, and a lookup reads every cell covering
+ * the circle, so each restaurant is stored once per precision instead of once per fine cell
+ * of every user around it.
+ */
+@Component
+@ConditionalOnProperty(name = "qeats.cache.nearby.layout", havingValue = "cover")
+public class CoverCellCacheLayout implements NearbyCacheLayout {
+
+  private static final String KEY_PREFIX = "cover:";
+
+  @Autowired
+  private transient NearbyRestaurantsFinder nearbyRestaurantsFinder;
+
+  @Override
+  public boolean supportsRadius(double servingRadiusInKms) {
+    return true;
+  }
+
+  @Override
+  public List<String> keysFor(double latitude, double longitude, double servingRadiusInKms) {
+    int precision = GeoHashUtils.coverPrecision(latitude, servingRadiusInKms,
+        GlobalConstants.GEOHASH_PRECISION);
+    return GeoHashUtils.coveringCells(latitude, longitude, servingRadiusInKms, precision)
+        .stream()
+        .map(cell -> KEY_PREFIX + cell)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public List<String> keysContaining(double latitude, double longitude) {
+    // The cell of the point at every precision a lookup may pick.
+    String cell = GeoHashUtils.cellOf(latitude, longitude, GlobalConstants.GEOHASH_PRECISION);
+    List<String> keys = new ArrayList<>();
+    for (int precision = 1; precision <= cell.length(); precision++) {
+      keys.add(KEY_PREFIX + cell.substring(0, precision));
+    }
+    return keys;
+  }
+
+  @Override
+  public List<RestaurantEntity> load(String key) {
+    String cell = key.substring(KEY_PREFIX.length());
+    GeoHash geoHash = GeoHash.fromGeohashString(cell);
+    WGS84Point centre = geoHash.getBoundingBoxCenterPoint();
+    double halfDiagonalInKms = GeoHashUtils.cellRadiusInKms(cell);
+
+    return nearbyRestaurantsFinder
+        .findAllRestaurantsNear(centre.getLatitude(), centre.getLongitude(), halfDiagonalInKms)
+        .stream()
+        .filter(restaurantEntity -> restaurantEntity.getLatitude() != null
+            && restaurantEntity.getLongitude() != null
+            && cell.equals(GeoHashUtils.cellOf(restaurantEntity.getLatitude(),
+                restaurantEntity.getLongitude(), cell.length())))
+        .collect(Collectors.toList());
+  }
+}
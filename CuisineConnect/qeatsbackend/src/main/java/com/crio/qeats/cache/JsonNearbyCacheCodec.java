@@ -0,0 +1,63 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.util.List;
+import org.springframework.stereotype.Component;
+
+/**
+ * The original format: a plain JSON array, without any header.
+ */
+@Component
+public class JsonNearbyCacheCodec implements NearbyCacheCodec {
+
+  private final ObjectMapper objectMapper;
+  private final JsonFactory jsonFactory;
+  private final ObjectReader reader;
+
+  public JsonNearbyCacheCodec(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+    this.jsonFactory = objectMapper.getFactory();
+    this.reader = objectMapper.readerFor(new TypeReference<List<RestaurantEntity>>() {});
+  }
+
+  @Override
+  public String name() {
+    return "json";
+  }
+
+  @Override
+  public byte version() {
+    return 0;
+  }
+
+  @Override
+  public byte[] encode(List<RestaurantEntity> restaurantEntities) throws IOException {
+    return objectMapper.writeValueAsBytes(restaurantEntities);
+  }
+
+  @Override
+  public List<RestaurantEntity> decode(byte[] bytes, int offset, int length)
+      throws IOException {
+    return reader.readValue(bytes, offset, length);
+  }
+
+  @Override
+  public List<RestaurantEntity> decodeWithin(byte[] bytes, int offset, int length,
+      double latitude, double longitude, double radiusInKms) throws IOException {
+    try (JsonParser parser = jsonFactory.createParser(bytes, offset, length)) {
+      return RestaurantEntityStreamReader.readWithin(parser, latitude, longitude, radiusInKms);
+    }
+  }
+}
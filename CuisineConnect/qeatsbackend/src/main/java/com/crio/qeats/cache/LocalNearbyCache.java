@@ -0,0 +1,156 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.models.RestaurantEntity;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process cache of decoded nearby cache entries, in front of Redis.
+ * Hot cells are served from here without a network round trip or JSON decoding; the entries
+ * expire well before their Redis copy, so an instance never serves a cell much staler than
+ * Redis does.
+ * Lookups of both tiers are counted in "qeats.cache.nearby.lookups", tagged by tier and result,
+ * and entries cached here in "qeats.cache.nearby.writes" with tier "local".
+ */
+@Component
+public class LocalNearbyCache {
+
+  private static final String LOOKUPS_METER = "qeats.cache.nearby.lookups";
+  private static final String WRITES_METER = "qeats.cache.nearby.writes";
+
+  private final Cache<String, List<RestaurantEntity>> entries;
+  // Keys read from Redis once within the ttl, not cached yet.
+  private final Cache<String, Boolean> seenOnce;
+
+  private final Counter localHits;
+  private final Counter localMisses;
+  private final Counter redisHits;
+  private final Counter redisMisses;
+  private final Counter localWrites;
+
+  public LocalNearbyCache(MeterRegistry meterRegistry,
+      @Value("${qeats.cache.nearby.local.maximum-size:10000}") long maximumSize,
+      @Value("${qeats.cache.nearby.local.ttl-seconds:60}") long ttlSeconds) {
+    if (ttlSeconds >= GlobalConstants.REDIS_ENTRY_EXPIRY_IN_SECONDS) {
+      throw new IllegalArgumentException("qeats.cache.nearby.local.ttl-seconds must be less than "
+          + GlobalConstants.REDIS_ENTRY_EXPIRY_IN_SECONDS);
+    }
+    // Caffeine evicts by W-TinyLFU, so a burst of one-off cells does not flush the hot ones.
+    this.entries = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .build();
+    this.seenOnce = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .build();
+
+    this.localHits = lookups(meterRegistry, "local", "hit");
+    this.localMisses = lookups(meterRegistry, "local", "miss");
+    this.redisHits = lookups(meterRegistry, "redis", "hit");
+    this.redisMisses = lookups(meterRegistry, "redis", "miss");
+    this.localWrites = writes(meterRegistry, "local");
+  }
+
+  /**
+   * Get the decoded entry of the given cache key.
+   * @return the shared, unmodifiable entry, or null if it is not cached in this instance
+   */
+  public List<RestaurantEntity> getIfPresent(String key) {
+    List<RestaurantEntity> restaurantEntities = entries.getIfPresent(key);
+    if (restaurantEntities == null) {
+      localMisses.increment();
+    } else {
+      localHits.increment();
+    }
+    return restaurantEntities;
+  }
+
+  /**
+   * Cache the decoded entry of the given cache key.
+   * The list is shared between requests from now on, so callers must not modify it.
+   */
+  public void put(String key, List<RestaurantEntity> restaurantEntities) {
+    entries.put(key, Collections.unmodifiableList(restaurantEntities));
+    localWrites.increment();
+  }
+
+  /**
+   * Whether an entry found in Redis should be decoded in full and cached here.
+   * Only entries read a second time within the ttl are, so the cells of one-off lookups are
+   * decoded by {@link NearbyCacheCodecs#decodeWithin} instead and never fill this cache.
+   */
+  public boolean admit(String key) {
+    if (seenOnce.asMap().remove(key) != null) {
+      return true;
+    }
+    seenOnce.put(key, Boolean.TRUE);
+    return false;
+  }
+
+  /**
+   * Count the result of one Redis lookup of the keys missing from this cache.
+   */
+  public void recordRedisLookups(int hits, int misses) {
+    redisHits.increment(hits);
+    redisMisses.increment(misses);
+  }
+
+  /**
+   * Drop the entries of the given cache keys.
+   */
+  public void invalidate(Collection<String> keys) {
+    entries.invalidateAll(keys);
+    seenOnce.invalidateAll(keys);
+  }
+
+  /**
+   * Drop the entries of cells without restaurants, which may have some now.
+   */
+  public void invalidateEmpty() {
+    entries.asMap().values().removeIf(List::isEmpty);
+  }
+
+  public void invalidateAll() {
+    entries.invalidateAll();
+    seenOnce.invalidateAll();
+  }
+
+  /**
+   * Counter of the lookups of the given tier, "local", "redis" or "mapped", with the given
+   * result.
+   */
+  static Counter lookups(MeterRegistry meterRegistry, String tier, String result) {
+    return Counter.builder(LOOKUPS_METER)
+        .description("Lookups of nearby cache entries")
+        .tag("tier", tier)
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Counter of the nearby cache entries written to the given tier, "local", "redis" or
+   * "mapped".
+   */
+  static Counter writes(MeterRegistry meterRegistry, String tier) {
+    return Counter.builder(WRITES_METER)
+        .description("Nearby cache entries written")
+        .tag("tier", tier)
+        .register(meterRegistry);
+  }
+}
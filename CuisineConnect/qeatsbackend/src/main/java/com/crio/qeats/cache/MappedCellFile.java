@@ -0,0 +1,365 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Encoded cache entries by key, in a memory-mapped file outside the Java heap.
+ * The file starts with a header, followed by an open-addressing (linear probing) table of
+ * fixed size slots and an append-only data region holding the key and value of every entry:
+ * <pre>
+ *   header  magic, version, slot count, data capacity, end of the data, used slots
+ *   slot    key hash (0 if free), offset and length of the record, expiry in epoch millis
+ *           (0 if invalidated), flags, CRC32 of the record
+ *   record  key length, key (UTF-8), value
+ * </pre>
+ * Slots are never freed, so probe chains stay intact; an expired or invalidated slot is
+ * reused by the next entry probing past it. Overwritten values are not reclaimed: once the
+ * data region or three quarters of the slots are used up, every entry is dropped and the file
+ * starts over.
+ * Any number of threads read at once; writes take an exclusive lock. Entries are checked
+ * against their CRC when read, so a record torn by a crash reads as missing after a restart.
+ * The file is locked against use by other processes while open.
+ */
+class MappedCellFile implements Closeable {
+
+  private static final int MAGIC = 0x51434346;
+  private static final int VERSION = 1;
+
+  private static final int HEADER_LENGTH = 64;
+  private static final int MAGIC_OFFSET = 0;
+  private static final int VERSION_OFFSET = 4;
+  private static final int SLOT_COUNT_OFFSET = 8;
+  private static final int DATA_CAPACITY_OFFSET = 12;
+  private static final int DATA_END_OFFSET = 16;
+  private static final int USED_SLOTS_OFFSET = 20;
+
+  private static final int SLOT_LENGTH = 32;
+  private static final int SLOT_HASH = 0;
+  private static final int SLOT_RECORD_OFFSET = 8;
+  private static final int SLOT_RECORD_LENGTH = 12;
+  private static final int SLOT_EXPIRES_AT = 16;
+  private static final int SLOT_FLAGS = 24;
+  private static final int SLOT_CRC = 28;
+
+  private static final int FLAG_EMPTY_ENTRY = 1;
+  private static final int MIN_SLOT_COUNT = 16;
+
+  private final RandomAccessFile file;
+  private final FileLock fileLock;
+  private final MappedByteBuffer buffer;
+  private final int slotCount;
+  private final int dataCapacity;
+  private final int dataStart;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Open the file at the given path, keeping its entries if it was written with the same
+   * layout, or creating it empty otherwise.
+   * @param slotCount number of slots, rounded up to a power of two of at least 16
+   * @param dataCapacity size of the data region in bytes
+   */
+  MappedCellFile(Path path, int slotCount, int dataCapacity) throws IOException {
+    if (slotCount <= 0 || slotCount > 1 << 26 || dataCapacity <= 0) {
+      throw new IllegalArgumentException("Slot count and data capacity must be positive, "
+          + "with at most 2^26 slots");
+    }
+    int roundedSlotCount = MIN_SLOT_COUNT;
+    while (roundedSlotCount < slotCount) {
+      roundedSlotCount <<= 1;
+    }
+    this.slotCount = roundedSlotCount;
+    long length = HEADER_LENGTH + (long) this.slotCount * SLOT_LENGTH + dataCapacity;
+    // A single MappedByteBuffer is indexed by int.
+    if (length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Mapped cache file of " + length + " bytes is too large");
+    }
+    this.dataCapacity = dataCapacity;
+    this.dataStart = HEADER_LENGTH + this.slotCount * SLOT_LENGTH;
+
+    file = new RandomAccessFile(path.toFile(), "rw");
+    try {
+      FileChannel channel = file.getChannel();
+      fileLock = channel.tryLock();
+      if (fileLock == null) {
+        throw new IllegalStateException(path + " is used by another process");
+      }
+      boolean compatible = file.length() == length;
+      file.setLength(length);
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+      if (!compatible || !hasHeader()) {
+        clear();
+      }
+    } catch (IOException | RuntimeException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Get the value of the given key.
+   * @return the value, or null if it is missing, expired or corrupt
+   */
+  byte[] get(String key, long nowMillis) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    long hash = hash(keyBytes);
+    lock.readLock().lock();
+    try {
+      int slot = findSlot(hash);
+      if (slot < 0 || buffer.getLong(slot + SLOT_EXPIRES_AT) <= nowMillis) {
+        return null;
+      }
+      byte[] record = readRecord(slot);
+      if (record == null) {
+        return null;
+      }
+      int keyLength = ((record[0] & 0xff) << 8) | (record[1] & 0xff);
+      // Keys of equal hashes share a slot; the last one written owns it.
+      if (keyLength != keyBytes.length
+          || !Arrays.equals(keyBytes, Arrays.copyOfRange(record, 2, 2 + keyLength))) {
+        return null;
+      }
+      return Arrays.copyOfRange(record, 2 + keyLength, record.length);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Store the value of the given key until the given time, replacing the current one.
+   * @param emptyEntry whether the value is an entry without restaurants, see
+   *     {@link #invalidateEmptyEntries}
+   * @return false if the file was full and had to be cleared first
+   */
+  boolean put(String key, byte[] value, long expiresAtMillis, boolean emptyEntry,
+      long nowMillis) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    int recordLength = 2 + keyBytes.length + value.length;
+    if (keyBytes.length > 0xffff || recordLength > dataCapacity) {
+      throw new IllegalArgumentException("Entry of " + key + " does not fit the mapped cache");
+    }
+    long hash = hash(keyBytes);
+
+    lock.writeLock().lock();
+    try {
+      boolean cleared = false;
+      int slot = findSlotForWrite(hash, nowMillis);
+      if (buffer.getInt(DATA_END_OFFSET) + recordLength > dataCapacity
+          || (isFree(slot) && buffer.getInt(USED_SLOTS_OFFSET) + 1 > slotCount / 4 * 3)) {
+        clear();
+        cleared = true;
+        slot = findSlotForWrite(hash, nowMillis);
+      }
+      if (isFree(slot)) {
+        buffer.putInt(USED_SLOTS_OFFSET, buffer.getInt(USED_SLOTS_OFFSET) + 1);
+      }
+
+      int recordOffset = buffer.getInt(DATA_END_OFFSET);
+      ByteBuffer data = buffer.duplicate();
+      data.position(dataStart + recordOffset);
+      data.putShort((short) keyBytes.length);
+      data.put(keyBytes);
+      data.put(value);
+      buffer.putInt(DATA_END_OFFSET, recordOffset + recordLength);
+
+      // The expiry goes last, so the slot never points at a half written record.
+      buffer.putLong(slot + SLOT_EXPIRES_AT, 0);
+      buffer.putLong(slot + SLOT_HASH, hash);
+      buffer.putInt(slot + SLOT_RECORD_OFFSET, recordOffset);
+      buffer.putInt(slot + SLOT_RECORD_LENGTH, recordLength);
+      buffer.putInt(slot + SLOT_FLAGS, emptyEntry ? FLAG_EMPTY_ENTRY : 0);
+      buffer.putInt(slot + SLOT_CRC, crc(dataStart + recordOffset, recordLength));
+      buffer.putLong(slot + SLOT_EXPIRES_AT, expiresAtMillis);
+      return !cleared;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Drop the value of the given key.
+   */
+  void invalidate(String key) {
+    long hash = hash(key.getBytes(StandardCharsets.UTF_8));
+    lock.writeLock().lock();
+    try {
+      int slot = findSlot(hash);
+      if (slot >= 0) {
+        buffer.putLong(slot + SLOT_EXPIRES_AT, 0);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Drop the values stored as entries without restaurants.
+   */
+  void invalidateEmptyEntries() {
+    lock.writeLock().lock();
+    try {
+      for (int i = 0; i < slotCount; i++) {
+        int slot = HEADER_LENGTH + i * SLOT_LENGTH;
+        if ((buffer.getInt(slot + SLOT_FLAGS) & FLAG_EMPTY_ENTRY) != 0) {
+          buffer.putLong(slot + SLOT_EXPIRES_AT, 0);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Drop every value.
+   */
+  void invalidateAll() {
+    lock.writeLock().lock();
+    try {
+      clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Bytes of the data region written since it was last cleared.
+   */
+  int usedBytes() {
+    return buffer.getInt(DATA_END_OFFSET);
+  }
+
+  /**
+   * Flush the file to disk and release it. The mapping itself is released once garbage
+   * collected.
+   */
+  @Override
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      buffer.force();
+      fileLock.release();
+      file.close();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private boolean hasHeader() {
+    return buffer.getInt(MAGIC_OFFSET) == MAGIC
+        && buffer.getInt(VERSION_OFFSET) == VERSION
+        && buffer.getInt(SLOT_COUNT_OFFSET) == slotCount
+        && buffer.getInt(DATA_CAPACITY_OFFSET) == dataCapacity
+        && buffer.getInt(DATA_END_OFFSET) >= 0
+        && buffer.getInt(DATA_END_OFFSET) <= dataCapacity;
+  }
+
+  // Called with the write lock held, or before the file is shared.
+  private void clear() {
+    // Invalidate the header first, so a crash halfway leaves a file that is cleared again.
+    buffer.putInt(MAGIC_OFFSET, 0);
+    for (int offset = HEADER_LENGTH; offset < dataStart; offset += 8) {
+      buffer.putLong(offset, 0);
+    }
+    buffer.putInt(VERSION_OFFSET, VERSION);
+    buffer.putInt(SLOT_COUNT_OFFSET, slotCount);
+    buffer.putInt(DATA_CAPACITY_OFFSET, dataCapacity);
+    buffer.putInt(DATA_END_OFFSET, 0);
+    buffer.putInt(USED_SLOTS_OFFSET, 0);
+    buffer.putInt(MAGIC_OFFSET, MAGIC);
+  }
+
+  // Offset of the slot holding the hash, or -1 if there is none.
+  private int findSlot(long hash) {
+    int index = (int) hash & (slotCount - 1);
+    for (int probes = 0; probes < slotCount; probes++) {
+      int slot = HEADER_LENGTH + index * SLOT_LENGTH;
+      long slotHash = buffer.getLong(slot + SLOT_HASH);
+      if (slotHash == hash) {
+        return slot;
+      }
+      if (slotHash == 0) {
+        return -1;
+      }
+      index = (index + 1) & (slotCount - 1);
+    }
+    return -1;
+  }
+
+  // Offset of the slot holding the hash, or else of the first expired slot on its probe
+  // chain, or else of the free slot ending it. The table is never full, see put.
+  private int findSlotForWrite(long hash, long nowMillis) {
+    int index = (int) hash & (slotCount - 1);
+    int expired = -1;
+    for (int probes = 0; probes < slotCount; probes++) {
+      int slot = HEADER_LENGTH + index * SLOT_LENGTH;
+      long slotHash = buffer.getLong(slot + SLOT_HASH);
+      if (slotHash == hash) {
+        return slot;
+      }
+      if (slotHash == 0) {
+        return expired >= 0 ? expired : slot;
+      }
+      if (expired < 0 && buffer.getLong(slot + SLOT_EXPIRES_AT) <= nowMillis) {
+        expired = slot;
+      }
+      index = (index + 1) & (slotCount - 1);
+    }
+    return expired >= 0 ? expired : HEADER_LENGTH;
+  }
+
+  private boolean isFree(int slot) {
+    return buffer.getLong(slot + SLOT_HASH) == 0;
+  }
+
+  private byte[] readRecord(int slot) {
+    int recordOffset = buffer.getInt(slot + SLOT_RECORD_OFFSET);
+    int recordLength = buffer.getInt(slot + SLOT_RECORD_LENGTH);
+    if (recordOffset < 0 || recordLength < 2 || recordOffset + recordLength > dataCapacity) {
+      return null;
+    }
+    byte[] record = new byte[recordLength];
+    ByteBuffer data = buffer.duplicate();
+    data.position(dataStart + recordOffset);
+    data.get(record);
+    CRC32 crc = new CRC32();
+    crc.update(record);
+    return (int) crc.getValue() == buffer.getInt(slot + SLOT_CRC) ? record : null;
+  }
+
+  private int crc(int offset, int length) {
+    ByteBuffer data = buffer.duplicate();
+    data.position(offset);
+    data.limit(offset + length);
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    return (int) crc.getValue();
+  }
+
+  // FNV-1a, spread over the whole long; 0 marks free slots, so it is never returned.
+  private static long hash(byte[] keyBytes) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : keyBytes) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 32;
+    return hash == 0 ? 1 : hash;
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.models.RestaurantEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Nearby cache entries in a memory-mapped file on local disk, in place of Redis, for
+ * single-node deployments that cannot run Redis.
+ * Entries are encoded like their Redis copies and kept outside the Java heap; the file
+ * outlives the process, so the entries are still warm after a restart or a deploy. Entries
+ * expire like Redis entries do, and cells without restaurants after
+ * {@link NegativeCache#getTtlSeconds}. Concurrent misses of a key in this instance share a
+ * single load.
+ * Lookups are counted in "qeats.cache.nearby.lookups" and writes in
+ * "qeats.cache.nearby.writes", both with tier "mapped".
+ */
+@Component
+@ConditionalOnProperty(name = "qeats.cache.nearby.backend", havingValue = "mapped")
+@Log4j2
+public class MappedNearbyCache {
+
+  private static final String TIER = "mapped";
+  private static final String RESETS_METER = "qeats.cache.nearby.mapped.resets";
+
+  @Autowired
+  private transient NearbyCacheLayout nearbyCacheLayout;
+
+  @Autowired
+  private transient NearbyCacheCodecs nearbyCacheCodecs;
+
+  @Autowired
+  private transient NegativeCache negativeCache;
+
+  @Autowired
+  private transient MeterRegistry meterRegistry;
+
+  @Value("${qeats.cache.nearby.mapped.path:qeats_nearby_cache.bin}")
+  private transient String path;
+
+  @Value("${qeats.cache.nearby.mapped.slots:65536}")
+  private transient int slots;
+
+  @Value("${qeats.cache.nearby.mapped.data-mb:256}")
+  private transient int dataMegabytes;
+
+  @Value("${qeats.cache.nearby.load.wait-ms:1000}")
+  private transient long waitMillis;
+
+  private MappedCellFile cellFile;
+  private final ConcurrentMap<String, CompletableFuture<List<RestaurantEntity>>> inFlight =
+      new ConcurrentHashMap<>();
+
+  private Counter hits;
+  private Counter misses;
+  private Counter writes;
+  private Counter resets;
+
+  @PostConstruct
+  public void open() throws IOException {
+    if (dataMegabytes <= 0 || dataMegabytes >= 2048) {
+      throw new IllegalArgumentException(
+          "qeats.cache.nearby.mapped.data-mb must be between 1 and 2047");
+    }
+    cellFile = new MappedCellFile(Paths.get(path), slots, dataMegabytes << 20);
+    hits = LocalNearbyCache.lookups(meterRegistry, TIER, "hit");
+    misses = LocalNearbyCache.lookups(meterRegistry, TIER, "miss");
+    writes = LocalNearbyCache.writes(meterRegistry, TIER);
+    resets = meterRegistry.counter(RESETS_METER);
+    log.info("Nearby cache mapped from {}, {} KB in use", path, cellFile.usedBytes() >> 10);
+  }
+
+  @PreDestroy
+  public void close() throws IOException {
+    cellFile.close();
+  }
+
+  /**
+   * Get the encoded entry of the given cache key.
+   * @return the entry, or null if it is missing or expired
+   */
+  public byte[] get(String key) {
+    return cellFile.get(key, System.currentTimeMillis());
+  }
+
+  /**
+   * Count the result of one lookup of the keys missing from the local cache.
+   */
+  public void recordLookups(int hitCount, int missCount) {
+    hits.increment(hitCount);
+    misses.increment(missCount);
+  }
+
+  /**
+   * Load and store the entry of a missing key, unless another request is already doing so.
+   * @return the restaurants of the entry
+   */
+  public List<RestaurantEntity> load(String key) throws IOException {
+    CompletableFuture<List<RestaurantEntity>> loading = new CompletableFuture<>();
+    CompletableFuture<List<RestaurantEntity>> leader = inFlight.putIfAbsent(key, loading);
+    if (leader != null) {
+      try {
+        return leader.get(waitMillis, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException | TimeoutException e) {
+        log.warn("Loading {} on behalf of a failed or slow loader", key, e);
+      }
+      return loadAndStore(key);
+    }
+
+    try {
+      List<RestaurantEntity> restaurantEntities = loadAndStore(key);
+      loading.complete(restaurantEntities);
+      return restaurantEntities;
+    } catch (IOException | RuntimeException e) {
+      loading.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, loading);
+    }
+  }
+
+  /**
+   * Drop the entries of the given cache keys.
+   */
+  public void invalidate(Collection<String> keys) {
+    for (String key : keys) {
+      cellFile.invalidate(key);
+    }
+  }
+
+  /**
+   * Drop the entries of cells without restaurants, which may have some now.
+   */
+  public void invalidateEmpty() {
+    cellFile.invalidateEmptyEntries();
+  }
+
+  public void invalidateAll() {
+    cellFile.invalidateAll();
+  }
+
+  private List<RestaurantEntity> loadAndStore(String key) throws IOException {
+    List<RestaurantEntity> restaurantEntities = nearbyCacheLayout.load(key);
+    boolean empty = restaurantEntities.isEmpty();
+    int expiryInSeconds =
+        empty ? negativeCache.getTtlSeconds() : GlobalConstants.REDIS_ENTRY_EXPIRY_IN_SECONDS;
+    long now = System.currentTimeMillis();
+    if (!cellFile.put(key, nearbyCacheCodecs.encode(restaurantEntities),
+        now + expiryInSeconds * 1000L, empty, now)) {
+      log.info("Mapped nearby cache {} was full, dropped every entry", path);
+      resets.increment();
+    }
+    writes.increment();
+    if (empty) {
+      negativeCache.recordEmptyNearbyEntry();
+    }
+    return restaurantEntities;
+  }
+}
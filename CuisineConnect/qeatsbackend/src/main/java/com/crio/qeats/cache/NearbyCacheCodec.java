@@ -0,0 +1,41 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.models.RestaurantEntity;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Binary format of the nearby cache entries stored in Redis.
+ * Every codec has its own version, written in the header of its entries by
+ * {@link NearbyCacheCodecs}, so entries of every format can be read while a new one is
+ * rolled out.
+ */
+public interface NearbyCacheCodec {
+
+  /**
+   * Name of the codec in qeats.cache.nearby.codec.
+   */
+  String name();
+
+  /**
+   * Version written in the header of the entries of this codec; 0 means no header.
+   */
+  byte version();
+
+  byte[] encode(List<RestaurantEntity> restaurantEntities) throws IOException;
+
+  List<RestaurantEntity> decode(byte[] bytes, int offset, int length) throws IOException;
+
+  /**
+   * Decode only the restaurants strictly within the radius; the others are skipped while
+   * parsing, without being materialised.
+   */
+  List<RestaurantEntity> decodeWithin(byte[] bytes, int offset, int length, double latitude,
+      double longitude, double radiusInKms) throws IOException;
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.models.RestaurantEntity;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encodes nearby cache entries with the codec of qeats.cache.nearby.codec, and decodes entries
+ * written by any known codec.
+ * An entry of a codec of version v starts with the two header bytes {0, v}. Entries without
+ * the header are plain JSON, as written before there were codecs; JSON never starts with 0.
+ */
+@Component
+public class NearbyCacheCodecs {
+
+  private static final byte HEADER_MARKER = 0;
+  private static final int HEADER_LENGTH = 2;
+
+  private final Map<Byte, NearbyCacheCodec> codecsByVersion = new HashMap<>();
+  private final NearbyCacheCodec writeCodec;
+
+  public NearbyCacheCodecs(List<NearbyCacheCodec> codecs,
+      @Value("${qeats.cache.nearby.codec:json}") String writeCodecName) {
+    NearbyCacheCodec selected = null;
+    for (NearbyCacheCodec codec : codecs) {
+      codecsByVersion.put(codec.version(), codec);
+      if (codec.name().equals(writeCodecName)) {
+        selected = codec;
+      }
+    }
+    if (selected == null) {
+      throw new IllegalArgumentException("Unknown qeats.cache.nearby.codec " + writeCodecName);
+    }
+    this.writeCodec = selected;
+  }
+
+  /**
+   * Encode the entry with the configured codec, behind its header.
+   */
+  public byte[] encode(List<RestaurantEntity> restaurantEntities) throws IOException {
+    byte[] body = writeCodec.encode(restaurantEntities);
+    if (writeCodec.version() == 0) {
+      return body;
+    }
+    byte[] bytes = new byte[HEADER_LENGTH + body.length];
+    bytes[0] = HEADER_MARKER;
+    bytes[1] = writeCodec.version();
+    System.arraycopy(body, 0, bytes, HEADER_LENGTH, body.length);
+    return bytes;
+  }
+
+  /**
+   * Decode an entry written by any known codec.
+   * @return the restaurants of the entry, or null if it was written by an unknown (newer)
+   *     codec, so it can be treated as a cache miss
+   */
+  public List<RestaurantEntity> decode(byte[] bytes) throws IOException {
+    NearbyCacheCodec codec = codecOf(bytes);
+    if (codec == null) {
+      return null;
+    }
+    int offset = headerLength(codec);
+    return codec.decode(bytes, offset, bytes.length - offset);
+  }
+
+  /**
+   * Decode the restaurants of an entry that are strictly within the radius.
+   * @return the restaurants within the radius, or null if the entry was written by an
+   *     unknown (newer) codec
+   */
+  public List<RestaurantEntity> decodeWithin(byte[] bytes, double latitude, double longitude,
+      double radiusInKms) throws IOException {
+    NearbyCacheCodec codec = codecOf(bytes);
+    if (codec == null) {
+      return null;
+    }
+    int offset = headerLength(codec);
+    return codec.decodeWithin(bytes, offset, bytes.length - offset, latitude, longitude,
+        radiusInKms);
+  }
+
+  private NearbyCacheCodec codecOf(byte[] bytes) {
+    if (bytes.length == 0 || bytes[0] != HEADER_MARKER) {
+      return codecsByVersion.get((byte) 0);
+    }
+    return bytes.length < HEADER_LENGTH ? null : codecsByVersion.get(bytes[1]);
+  }
+
+  private static int headerLength(NearbyCacheCodec codec) {
+    return codec.version() == 0 ? 0 : HEADER_LENGTH;
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.models.RestaurantEntity;
+import java.util.List;
+
+/**
+ * How nearby restaurants are laid out in the Redis cache.
+ * A nearby lookup reads the entries of {@link #keysFor}, loads the missing ones with
+ * {@link #load} and filters the union of all entries by time and distance.
+ */
+public interface NearbyCacheLayout {
+
+  /**
+   * Whether this layout can answer a lookup of the given radius from its entries.
+   */
+  boolean supportsRadius(double servingRadiusInKms);
+
+  /**
+   * Cache keys whose entries together hold every restaurant within the radius.
+   */
+  List<String> keysFor(double latitude, double longitude, double servingRadiusInKms);
+
+  /**
+   * Cache keys whose entries may hold a restaurant located at the given point.
+   */
+  List<String> keysContaining(double latitude, double longitude);
+
+  /**
+   * Restaurants stored under the given key, regardless of their opening hours.
+   */
+  List<RestaurantEntity> load(String key);
+}
@@ -0,0 +1,261 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.models.RestaurantEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * Loads missing nearby cache entries into Redis, one loader per key at a time.
+ * Keys are given as returned by the {@link NearbyCacheLayout}, and namespaced by the current
+ * cache generation only where they meet Redis.
+ * Within an instance, concurrent misses of a key wait for the first one to load it. Across
+ * instances, the loader holds a short Redis lock on the key and the others poll for the entry
+ * it writes. Every wait is bounded; a waiter that gives up loads the entry itself, so a stuck
+ * loader only costs the extra load it was meant to save.
+ * Next to every entry it stores when the entry expires and how long it took to load, so hot
+ * entries can be reloaded in the background shortly before they expire (XFetch), instead of
+ * making the first request after the expiry wait for the load.
+ */
+@Component
+@Log4j2
+public class NearbyCacheLoader {
+
+  private static final String LOCK_PREFIX = "lock:";
+  private static final String REFRESH_INFO_PREFIX = "refresh:";
+  private static final String REFRESHES_METER = "qeats.cache.nearby.refreshes";
+  private static final String REFRESH_SAVED_METER = "qeats.cache.nearby.refresh.saved";
+  private static final long POLL_INTERVAL_MILLIS = 20;
+  // Deletes the lock only if it is still ours, not one taken after ours expired.
+  private static final String RELEASE_SCRIPT =
+      "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) "
+      + "else return 0 end";
+
+  @Autowired
+  private transient NearbyCacheLayout nearbyCacheLayout;
+
+  @Autowired
+  private transient NearbyCacheCodecs nearbyCacheCodecs;
+
+  @Autowired
+  private transient RedisConfiguration redisConfiguration;
+
+  @Autowired
+  private transient NegativeCache negativeCache;
+
+  @Autowired
+  private transient MeterRegistry meterRegistry;
+
+  @Autowired
+  @Qualifier("nearbyCacheRefreshExecutor")
+  private transient Executor refreshExecutor;
+
+  @Value("${qeats.cache.nearby.refresh.beta:1.0}")
+  private transient double refreshBeta;
+
+  @Value("${qeats.cache.nearby.load.lock-ms:2000}")
+  private transient long lockMillis;
+
+  @Value("${qeats.cache.nearby.load.wait-ms:1000}")
+  private transient long waitMillis;
+
+  private final ConcurrentMap<String, CompletableFuture<List<RestaurantEntity>>> inFlight =
+      new ConcurrentHashMap<>();
+  private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Key of the refresh info stored next to the entry of the given key, before it is
+   * namespaced by {@link RedisConfiguration#cacheKey}.
+   */
+  public static String refreshInfoKey(String key) {
+    return REFRESH_INFO_PREFIX + key;
+  }
+
+  /**
+   * Get the entry of a key missing from Redis, loading and storing it unless another request
+   * of this or another instance is already doing so.
+   * @param jedis connection used for the lock and the entry
+   * @param key cache key of the entry
+   * @return the restaurants of the entry
+   */
+  public List<RestaurantEntity> load(Jedis jedis, String key) throws IOException {
+    CompletableFuture<List<RestaurantEntity>> loading = new CompletableFuture<>();
+    CompletableFuture<List<RestaurantEntity>> leader = inFlight.putIfAbsent(key, loading);
+    if (leader != null) {
+      return awaitLeader(jedis, key, leader);
+    }
+
+    try {
+      List<RestaurantEntity> restaurantEntities = loadOnce(jedis, key);
+      loading.complete(restaurantEntities);
+      return restaurantEntities;
+    } catch (IOException | RuntimeException e) {
+      loading.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, loading);
+    }
+  }
+
+  private List<RestaurantEntity> awaitLeader(Jedis jedis, String key,
+      CompletableFuture<List<RestaurantEntity>> leader) throws IOException {
+    try {
+      return leader.get(waitMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      log.warn("Loading {} on behalf of a failed or slow loader", key, e);
+    }
+    return loadAndStore(jedis, key);
+  }
+
+  private List<RestaurantEntity> loadOnce(Jedis jedis, String key) throws IOException {
+    String lockKey = redisConfiguration.cacheKey(LOCK_PREFIX + key);
+    String token = UUID.randomUUID().toString();
+    if ("OK".equals(jedis.set(lockKey, token, "NX", "PX", lockMillis))) {
+      try {
+        return loadAndStore(jedis, key);
+      } finally {
+        jedis.eval(RELEASE_SCRIPT, Collections.singletonList(lockKey),
+            Collections.singletonList(token));
+      }
+    }
+
+    // Another instance is loading the entry: wait for it to show up.
+    byte[] binaryKey = SafeEncoder.encode(redisConfiguration.cacheKey(key));
+    long deadline = System.currentTimeMillis() + waitMillis;
+    while (System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(POLL_INTERVAL_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      byte[] cacheEntry = jedis.get(binaryKey);
+      List<RestaurantEntity> restaurantEntities =
+          cacheEntry == null ? null : nearbyCacheCodecs.decode(cacheEntry);
+      if (restaurantEntities != null) {
+        return restaurantEntities;
+      }
+    }
+    log.warn("Loading {} after waiting {} ms for another instance", key, waitMillis);
+    return loadAndStore(jedis, key);
+  }
+
+  /**
+   * Start reloading the entry of a key in the background if it is due, while requests keep
+   * being served the current entry.
+   * @param key cache key of the entry that was just read
+   * @param refreshInfo the value of {@link #refreshInfoKey}, or null if there is none
+   */
+  public void refreshIfDue(String key, byte[] refreshInfo) {
+    if (refreshInfo == null) {
+      return;
+    }
+    long expiresAtMillis;
+    long loadMillis;
+    try {
+      String[] fields = SafeEncoder.encode(refreshInfo).split(":");
+      expiresAtMillis = Long.parseLong(fields[0]);
+      loadMillis = Long.parseLong(fields[1]);
+    } catch (RuntimeException e) {
+      log.warn("Ignoring malformed refresh info of {}", key, e);
+      return;
+    }
+
+    if (!isRefreshDue(System.currentTimeMillis(), expiresAtMillis, loadMillis)
+        || !refreshing.add(key)) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(() -> refresh(key));
+    } catch (RejectedExecutionException e) {
+      refreshing.remove(key);
+    }
+  }
+
+  // XFetch: refresh when now - loadMillis * beta * ln(u) reaches the expiry, for u uniform in
+  // (0, 1]. The nearer the expiry and the slower the load, the likelier a request refreshes.
+  boolean isRefreshDue(long nowMillis, long expiresAtMillis, long loadMillis) {
+    double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+    return nowMillis - loadMillis * refreshBeta * Math.log(random) >= expiresAtMillis;
+  }
+
+  private void refresh(String key) {
+    String lockKey = redisConfiguration.cacheKey(LOCK_PREFIX + key);
+    String token = UUID.randomUUID().toString();
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      // Skip it if another request or instance is loading the entry already.
+      if (!"OK".equals(jedis.set(lockKey, token, "NX", "PX", lockMillis))) {
+        return;
+      }
+      try {
+        long start = System.nanoTime();
+        loadAndStore(jedis, key);
+        meterRegistry.counter(REFRESHES_METER).increment();
+        // The load a request would otherwise have waited for.
+        meterRegistry.timer(REFRESH_SAVED_METER)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      } finally {
+        jedis.eval(RELEASE_SCRIPT, Collections.singletonList(lockKey),
+            Collections.singletonList(token));
+      }
+    } catch (Exception e) {
+      log.warn("Could not refresh {} ahead of its expiry", key, e);
+    } finally {
+      refreshing.remove(key);
+    }
+  }
+
+  private List<RestaurantEntity> loadAndStore(Jedis jedis, String key) throws IOException {
+    long start = System.currentTimeMillis();
+    List<RestaurantEntity> restaurantEntities = nearbyCacheLayout.load(key);
+    long loadMillis = System.currentTimeMillis() - start;
+    // Cells without restaurants are cached for a shorter time, as negative entries.
+    boolean empty = restaurantEntities.isEmpty();
+    int expiryInSeconds =
+        empty ? negativeCache.getTtlSeconds() : GlobalConstants.REDIS_ENTRY_EXPIRY_IN_SECONDS;
+    long expiresAtMillis = System.currentTimeMillis() + expiryInSeconds * 1000L;
+
+    // set the redis cache with the expiration time
+    Pipeline pipeline = jedis.pipelined();
+    pipeline.setex(SafeEncoder.encode(redisConfiguration.cacheKey(key)), expiryInSeconds,
+        nearbyCacheCodecs.encode(restaurantEntities));
+    pipeline.setex(redisConfiguration.cacheKey(refreshInfoKey(key)), expiryInSeconds,
+        expiresAtMillis + ":" + loadMillis);
+    if (empty) {
+      negativeCache.trackEmptyNearbyEntry(pipeline, key);
+    }
+    pipeline.sync();
+    LocalNearbyCache.writes(meterRegistry, "redis").increment();
+    return restaurantEntities;
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import ch.hsr.geohash.GeoHash;
+import ch.hsr.geohash.WGS84Point;
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositoryservices.NearbyRestaurantsFinder;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * Loads the nearby cache entries of a list of hot locations into Redis, or the mapped file,
+ * when the application starts, so the first requests after a deploy or a Redis flush do not
+ * all go to Mongo. The local cache is left to fill on demand: its entries would expire before
+ * a long warm-up ends. Nothing is warmed when the nearby lookups do not read the cache.
+ * The list is a text file with one location per line, either "latitude,longitude" or a
+ * geohash cell; blank lines and lines starting with # are ignored.
+ * Health is reported OUT_OF_SERVICE until the warm-up finishes or times out, so load
+ * balancers keep traffic away from the instance meanwhile.
+ */
+@Component
+@Log4j2
+public class NearbyCacheWarmer implements HealthIndicator {
+
+  @Autowired
+  private transient ResourceLoader resourceLoader;
+
+  @Autowired
+  private transient RedisConfiguration redisConfiguration;
+
+  @Autowired
+  private transient NearbyCacheLayout nearbyCacheLayout;
+
+  @Autowired
+  private transient NearbyCacheCodecs nearbyCacheCodecs;
+
+  @Autowired
+  private transient NearbyCacheLoader nearbyCacheLoader;
+
+  @Autowired
+  private transient NearbyRestaurantsFinder nearbyRestaurantsFinder;
+
+  @Autowired(required = false)
+  private transient MappedNearbyCache mappedNearbyCache;
+
+  @Value("${qeats.cache.warmup.locations:}")
+  private transient String locations;
+
+  @Value("${qeats.cache.warmup.parallelism:4}")
+  private transient int parallelism;
+
+  @Value("${qeats.cache.warmup.timeout-ms:60000}")
+  private transient long timeoutMillis;
+
+  private volatile boolean done;
+  private final AtomicInteger warmedKeys = new AtomicInteger();
+  private volatile int totalKeys;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUpOnStartup() {
+    Thread warmUp = new Thread(this::warmUp, "cache-warmup");
+    warmUp.setDaemon(true);
+    warmUp.start();
+  }
+
+  /**
+   * Warms the entries of every configured location, at most parallelism at a time, and
+   * returns when they are all warm or the timeout is reached.
+   */
+  public void warmUp() {
+    try {
+      if (locations.isEmpty()) {
+        return;
+      }
+      if (!nearbyRestaurantsFinder.isCacheable()) {
+        log.info("Skipping the cache warm-up, nearby lookups do not read the cache");
+        return;
+      }
+      if (mappedNearbyCache == null && !redisConfiguration.isCacheAvailable()) {
+        log.warn("Skipping the cache warm-up, redis is not available");
+        return;
+      }
+
+      Set<String> keys = new LinkedHashSet<>();
+      for (WGS84Point location : readLocations(resourceLoader.getResource(locations))) {
+        keys.addAll(nearbyCacheLayout.keysFor(location.getLatitude(), location.getLongitude(),
+            GlobalConstants.MAX_SERVING_RADIUS_IN_KMS));
+      }
+      totalKeys = keys.size();
+
+      long start = System.currentTimeMillis();
+      ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+      for (String key : keys) {
+        executor.execute(() -> warm(key));
+      }
+      executor.shutdown();
+      if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+        executor.shutdownNow();
+        log.warn("Cache warm-up timed out after {} ms", timeoutMillis);
+      }
+      log.info("Warmed {} of {} nearby cache entries in {} ms", warmedKeys.get(), totalKeys,
+          System.currentTimeMillis() - start);
+    } catch (IOException e) {
+      log.warn("Could not read the cache warm-up locations {}", locations, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      done = true;
+    }
+  }
+
+  @Override
+  public Health health() {
+    Health.Builder health = done ? Health.up() : Health.outOfService();
+    return health.withDetail("warmedEntries", warmedKeys.get())
+        .withDetail("entries", totalKeys)
+        .build();
+  }
+
+  private void warm(String key) {
+    if (mappedNearbyCache != null) {
+      warmFromMappedFile(key);
+      return;
+    }
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      byte[] cacheEntry = jedis.get(SafeEncoder.encode(redisConfiguration.cacheKey(key)));
+      List<RestaurantEntity> entry =
+          cacheEntry == null ? null : nearbyCacheCodecs.decode(cacheEntry);
+      if (entry == null) {
+        nearbyCacheLoader.load(jedis, key);
+      }
+      warmedKeys.incrementAndGet();
+    } catch (Exception e) {
+      log.warn("Could not warm the nearby cache entry {}", key, e);
+    }
+  }
+
+  private void warmFromMappedFile(String key) {
+    try {
+      byte[] cacheEntry = mappedNearbyCache.get(key);
+      List<RestaurantEntity> entry =
+          cacheEntry == null ? null : nearbyCacheCodecs.decode(cacheEntry);
+      if (entry == null) {
+        mappedNearbyCache.load(key);
+      }
+      warmedKeys.incrementAndGet();
+    } catch (Exception e) {
+      log.warn("Could not warm the nearby cache entry {}", key, e);
+    }
+  }
+
+  static List<WGS84Point> readLocations(Resource resource) throws IOException {
+    List<WGS84Point> locations = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        int comma = line.indexOf(',');
+        if (comma < 0) {
+          locations.add(GeoHash.fromGeohashString(line).getBoundingBoxCenterPoint());
+        } else {
+          locations.add(new WGS84Point(Double.parseDouble(line.substring(0, comma).trim()),
+              Double.parseDouble(line.substring(comma + 1).trim())));
+        }
+      }
+    }
+    return locations;
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import ch.hsr.geohash.GeoHash;
+import ch.hsr.geohash.WGS84Point;
+import com.crio.qeats.configs.RedisCircuitBreaker;
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.utils.GeoHashUtils;
+import com.crio.qeats.utils.GeoUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * Remembers lookups that found nothing, for a shorter time than regular cache entries:
+ * nearby cache entries of cells without restaurants, and searches without any hit around a
+ * cell. Every such key is also tracked in a Redis set of the same cache generation, so they can
+ * all be dropped at once when restaurants or menus change.
+ * Hits are counted in "qeats.cache.negative.hits" and writes in "qeats.cache.negative.writes",
+ * both tagged by kind.
+ */
+@Component
+@Log4j2
+public class NegativeCache {
+
+  private static final String SEARCH_PREFIX = "nohits:";
+  private static final String NEARBY_KEYS = "negative:nearby";
+  private static final String SEARCH_KEYS = "negative:search";
+  private static final String HITS_METER = "qeats.cache.negative.hits";
+  private static final String WRITES_METER = "qeats.cache.negative.writes";
+
+  @Autowired
+  private transient RedisConfiguration redisConfiguration;
+
+  @Autowired
+  private transient RedisCircuitBreaker redisCircuitBreaker;
+
+  @Autowired
+  private transient LocalNearbyCache localNearbyCache;
+
+  @Autowired
+  private transient MeterRegistry meterRegistry;
+
+  @Value("${qeats.cache.negative.ttl-seconds:300}")
+  private transient int ttlSeconds;
+
+  private Counter nearbyHits;
+  private Counter searchHits;
+  private Counter nearbyWrites;
+  private Counter searchWrites;
+
+  @PostConstruct
+  public void registerMeters() {
+    nearbyHits = meterRegistry.counter(HITS_METER, "kind", "nearby");
+    searchHits = meterRegistry.counter(HITS_METER, "kind", "search");
+    nearbyWrites = meterRegistry.counter(WRITES_METER, "kind", "nearby");
+    searchWrites = meterRegistry.counter(WRITES_METER, "kind", "search");
+  }
+
+  public int getTtlSeconds() {
+    return ttlSeconds;
+  }
+
+  /**
+   * Track a nearby cache entry without restaurants, stored in the same pipeline with
+   * {@link #getTtlSeconds} as its expiry.
+   */
+  public void trackEmptyNearbyEntry(Pipeline pipeline, String key) {
+    String nearbyKeys = redisConfiguration.cacheKey(NEARBY_KEYS);
+    pipeline.sadd(nearbyKeys, key);
+    pipeline.expire(nearbyKeys, ttlSeconds);
+    recordEmptyNearbyEntry();
+  }
+
+  /**
+   * Count a nearby cache entry without restaurants, stored by a backend that drops such
+   * entries itself, see {@link MappedNearbyCache#invalidateEmpty}.
+   */
+  public void recordEmptyNearbyEntry() {
+    nearbyWrites.increment();
+  }
+
+  public void recordNearbyHit() {
+    nearbyHits.increment();
+  }
+
+  /**
+   * Key of a search around the cell of the given point.
+   * The query is normalized, so "Sushi " and "sushi" share their key; see
+   * {@link SearchResultCache#normalizeQuery}.
+   */
+  public static String searchKey(double latitude, double longitude, double servingRadiusInKms,
+      String query) {
+    return SEARCH_PREFIX
+        + GeoHashUtils.cellOf(latitude, longitude, GlobalConstants.GEOHASH_PRECISION) + ":"
+        + servingRadiusInKms + ":" + SearchResultCache.normalizeQuery(query);
+  }
+
+  /**
+   * Whether the search of the given key recently found nothing.
+   * False when Redis is not available, so searches then always run.
+   */
+  public boolean hasNoSearchHits(String searchKey) {
+    if (!redisConfiguration.isCacheAvailable()) {
+      return false;
+    }
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      boolean noHits = jedis.exists(redisConfiguration.cacheKey(searchKey));
+      redisCircuitBreaker.recordSuccess();
+      if (noHits) {
+        searchHits.increment();
+      }
+      return noHits;
+    } catch (JedisConnectionException e) {
+      log.warn("Could not read the negative search cache", e);
+      redisCircuitBreaker.recordFailure();
+      return false;
+    } catch (Exception e) {
+      log.warn("Could not read the negative search cache", e);
+      return false;
+    }
+  }
+
+  /**
+   * Remember that the search of the given key found nothing. Only for searches that cannot
+   * find anything from the cell at any other time either, see
+   * {@link com.crio.qeats.repositoryservices.RestaurantRepositoryService#hasNoSearchCandidates}.
+   */
+  public void recordNoSearchHits(String searchKey) {
+    if (!redisConfiguration.isCacheAvailable()) {
+      return;
+    }
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      Pipeline pipeline = jedis.pipelined();
+      String searchKeys = redisConfiguration.cacheKey(SEARCH_KEYS);
+      pipeline.setex(redisConfiguration.cacheKey(searchKey), ttlSeconds, "");
+      pipeline.sadd(searchKeys, searchKey);
+      pipeline.expire(searchKeys, ttlSeconds);
+      pipeline.sync();
+      redisCircuitBreaker.recordSuccess();
+      searchWrites.increment();
+    } catch (JedisConnectionException e) {
+      log.warn("Could not write the negative search cache", e);
+      redisCircuitBreaker.recordFailure();
+    } catch (Exception e) {
+      log.warn("Could not write the negative search cache", e);
+    }
+  }
+
+  /**
+   * Drop the negative entries of searches from cells with a point within the largest serving
+   * radius of the given location, which a restaurant there may now be a hit of.
+   */
+  public void invalidateSearchesAround(double latitude, double longitude) {
+    JedisPool jedisPool = redisConfiguration.getJedisPool();
+    if (jedisPool == null) {
+      return;
+    }
+    try (Jedis jedis = jedisPool.getResource()) {
+      List<String> keys = new ArrayList<>();
+      String searchKeySet = redisConfiguration.cacheKey(SEARCH_KEYS);
+      for (String key : jedis.smembers(searchKeySet)) {
+        String cell = key.substring(SEARCH_PREFIX.length()).split(":", 2)[0];
+        WGS84Point centre = GeoHash.fromGeohashString(cell).getBoundingBoxCenterPoint();
+        double distanceInKms = GeoUtils.findDistanceInKm(latitude, longitude,
+            centre.getLatitude(), centre.getLongitude());
+        if (distanceInKms
+            <= GlobalConstants.MAX_SERVING_RADIUS_IN_KMS + GeoHashUtils.cellRadiusInKms(cell)) {
+          keys.add(key);
+        }
+      }
+      if (!keys.isEmpty()) {
+        String[] searchKeys = keys.toArray(new String[0]);
+        Pipeline pipeline = jedis.pipelined();
+        pipeline.del(keys.stream().map(redisConfiguration::cacheKey).toArray(String[]::new));
+        pipeline.srem(searchKeySet, searchKeys);
+        pipeline.sync();
+      }
+    } catch (Exception e) {
+      log.warn("Could not invalidate the negative search cache", e);
+    }
+  }
+
+  /**
+   * Drop every negative entry, after restaurants or menus changed.
+   * Other instances may serve empty nearby entries from their local cache for up to its ttl.
+   */
+  public void invalidateAll() {
+    localNearbyCache.invalidateEmpty();
+
+    JedisPool jedisPool = redisConfiguration.getJedisPool();
+    if (jedisPool == null) {
+      return;
+    }
+    try (Jedis jedis = jedisPool.getResource()) {
+      String nearbyKeys = redisConfiguration.cacheKey(NEARBY_KEYS);
+      String searchKeys = redisConfiguration.cacheKey(SEARCH_KEYS);
+      List<String> keys = new ArrayList<>();
+      for (String key : jedis.smembers(nearbyKeys)) {
+        // The refresh info would otherwise outlive its entry.
+        keys.add(redisConfiguration.cacheKey(key));
+        keys.add(redisConfiguration.cacheKey(NearbyCacheLoader.refreshInfoKey(key)));
+      }
+      keys.add(nearbyKeys);
+      for (String key : jedis.smembers(searchKeys)) {
+        keys.add(redisConfiguration.cacheKey(key));
+      }
+      keys.add(searchKeys);
+      jedis.del(keys.toArray(new String[0]));
+      log.info("Dropped {} negative cache keys", keys.size());
+    } catch (Exception e) {
+      log.warn("Could not invalidate the negative cache", e);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.GeoUtils;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a cached array of restaurants token by token, keeping only the restaurants within a
+ * radius. RestaurantEntity writes its coordinates first, so a restaurant outside the radius is
+ * skipped after two fields, before any of its strings or lists are created.
+ * Works for every Jackson format, since they all parse through a {@link JsonParser}.
+ */
+final class RestaurantEntityStreamReader {
+
+  private RestaurantEntityStreamReader() { /* singleton */ }
+
+  static List<RestaurantEntity> readWithin(JsonParser parser, double latitude,
+      double longitude, double radiusInKms) throws IOException {
+    if (parser.nextToken() != JsonToken.START_ARRAY) {
+      throw new JsonParseException(parser, "Expected an array of restaurants");
+    }
+
+    List<RestaurantEntity> restaurantEntities = new ArrayList<>();
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      RestaurantEntity restaurantEntity =
+          readIfWithin(parser, latitude, longitude, radiusInKms);
+      if (restaurantEntity != null) {
+        restaurantEntities.add(restaurantEntity);
+      }
+    }
+    return restaurantEntities;
+  }
+
+  // Reads the current object, or skips the rest of it as soon as it is known to be outside.
+  private static RestaurantEntity readIfWithin(JsonParser parser, double latitude,
+      double longitude, double radiusInKms) throws IOException {
+    Double restaurantLatitude = null;
+    Double restaurantLongitude = null;
+    boolean checked = false;
+    RestaurantEntity restaurantEntity = new RestaurantEntity();
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      if (parser.nextToken() == JsonToken.VALUE_NULL) {
+        continue;
+      }
+      switch (field) {
+        case "latitude":
+          restaurantLatitude = parser.getDoubleValue();
+          break;
+        case "longitude":
+          restaurantLongitude = parser.getDoubleValue();
+          break;
+        case "id":
+          restaurantEntity.setId(parser.getText());
+          break;
+        case "restaurantId":
+          restaurantEntity.setRestaurantId(parser.getText());
+          break;
+        case "name":
+          restaurantEntity.setName(parser.getText());
+          break;
+        case "city":
+          restaurantEntity.setCity(parser.getText());
+          break;
+        case "imageUrl":
+          restaurantEntity.setImageUrl(parser.getText());
+          break;
+        case "opensAt":
+          restaurantEntity.setOpensAt(parser.getText());
+          break;
+        case "closesAt":
+          restaurantEntity.setClosesAt(parser.getText());
+          break;
+        case "attributes":
+          restaurantEntity.setAttributes(readStrings(parser));
+          break;
+        case "openingSlots":
+          restaurantEntity.setOpeningSlots(readStrings(parser));
+          break;
+        default:
+          parser.skipChildren();
+      }
+
+      if (!checked && restaurantLatitude != null && restaurantLongitude != null) {
+        checked = true;
+        if (GeoUtils.findDistanceInKm(latitude, longitude, restaurantLatitude,
+            restaurantLongitude) >= radiusInKms) {
+          skipRestOfObject(parser);
+          return null;
+        }
+      }
+    }
+
+    if (!checked) {
+      // Without coordinates the restaurant can not be within any radius.
+      return null;
+    }
+    restaurantEntity.setLatitude(restaurantLatitude);
+    restaurantEntity.setLongitude(restaurantLongitude);
+    return restaurantEntity;
+  }
+
+  private static List<String> readStrings(JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+      throw new JsonParseException(parser, "Expected an array of strings");
+    }
+    List<String> strings = new ArrayList<>();
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      strings.add(parser.getText());
+    }
+    return strings;
+  }
+
+  private static void skipRestOfObject(JsonParser parser) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      parser.nextToken();
+      parser.skipChildren();
+    }
+  }
+}
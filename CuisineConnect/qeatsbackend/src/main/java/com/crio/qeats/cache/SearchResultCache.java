@@ -0,0 +1,145 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.utils.GeoHashUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process cache of the restaurants each search source matched for a query, per coarse
+ * (precision 5) cell.
+ * An entry holds the ids of every matching restaurant that can be within the largest serving
+ * radius of some point of the cell, not the results of one request: the time and the radius
+ * of each request are still applied to them.
+ * Entries expire after the ttl and are dropped when restaurants or menus change, see
+ * {@link CacheInvalidator}.
+ * Lookups are counted in "qeats.cache.search.lookups", tagged by result, and writes in
+ * "qeats.cache.search.writes".
+ */
+@Component
+public class SearchResultCache {
+
+  private static final String LOOKUPS_METER = "qeats.cache.search.lookups";
+  private static final String WRITES_METER = "qeats.cache.search.writes";
+
+  private final Cache<String, List<String>> entries;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter writes;
+
+  public SearchResultCache(MeterRegistry meterRegistry,
+      @Value("${qeats.cache.search.maximum-size:10000}") long maximumSize,
+      @Value("${qeats.cache.search.ttl-seconds:300}") long ttlSeconds) {
+    this.entries = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .build();
+
+    this.hits = lookups(meterRegistry, "hit");
+    this.misses = lookups(meterRegistry, "miss");
+    this.writes = Counter.builder(WRITES_METER)
+        .description("Search results cached")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Lower-cased search query with single spaces between its words, so "South  Indian " and
+   * "south indian" share their entries.
+   */
+  public static String normalizeQuery(String query) {
+    return query.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+  }
+
+  /**
+   * Coarse cell a search from the given point is cached by.
+   */
+  public static String cellOf(double latitude, double longitude) {
+    return GeoHashUtils.cellOf(latitude, longitude,
+        GlobalConstants.SEARCH_CACHE_GEOHASH_PRECISION);
+  }
+
+  /**
+   * Key of the entry of one search source.
+   * @param source name of the search source, e.g. "name"
+   * @param cell coarse cell of the search, see {@link #cellOf}
+   * @param normalizedQuery search query, see {@link #normalizeQuery}
+   */
+  public static String key(String source, String cell, String normalizedQuery) {
+    return source + ":" + cell + ":" + normalizedQuery;
+  }
+
+  /**
+   * Whether searches of the given radius can be answered from the entries of their cell.
+   */
+  public boolean supportsRadius(double servingRadiusInKms) {
+    return servingRadiusInKms <= GlobalConstants.MAX_SERVING_RADIUS_IN_KMS;
+  }
+
+  /**
+   * Get the ids of the restaurants matched for the given key, in the order of the source.
+   * @return the shared, unmodifiable ids, or null if they are not cached
+   */
+  public List<String> getIfPresent(String key) {
+    List<String> restaurantIds = entries.getIfPresent(key);
+    if (restaurantIds == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return restaurantIds;
+  }
+
+  /**
+   * Whether the entry of the given key is cached and matched no restaurant. Not counted as a
+   * lookup.
+   */
+  public boolean isCachedEmpty(String key) {
+    List<String> restaurantIds = entries.getIfPresent(key);
+    return restaurantIds != null && restaurantIds.isEmpty();
+  }
+
+  public void put(String key, List<String> restaurantIds) {
+    entries.put(key, Collections.unmodifiableList(restaurantIds));
+    writes.increment();
+  }
+
+  /**
+   * Drop the entries of every cell with a point within the largest serving radius of the
+   * given location, the only ones a restaurant there can be matched in.
+   */
+  public void invalidateAround(double latitude, double longitude) {
+    double halfDiagonalInKms = GeoHashUtils.cellRadiusInKms(cellOf(latitude, longitude));
+    Set<String> cells = new HashSet<>(GeoHashUtils.coveringCells(latitude, longitude,
+        GlobalConstants.MAX_SERVING_RADIUS_IN_KMS + halfDiagonalInKms,
+        GlobalConstants.SEARCH_CACHE_GEOHASH_PRECISION));
+    entries.asMap().keySet().removeIf(key -> cells.contains(key.split(":", 3)[1]));
+  }
+
+  public void invalidateAll() {
+    entries.invalidateAll();
+  }
+
+  private static Counter lookups(MeterRegistry meterRegistry, String result) {
+    return Counter.builder(LOOKUPS_METER)
+        .description("Lookups of cached search results")
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import java.io.IOException;
+import java.util.List;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Smile, the binary form of JSON. Field names and short values (cities, attributes,
+ * opening hours) are written once per entry and referred back to afterwards, and numbers are
+ * stored in binary.
+ */
+@Component
+public class SmileNearbyCacheCodec implements NearbyCacheCodec {
+
+  private final SmileFactory smileFactory;
+  private final ObjectWriter writer;
+  private final ObjectReader reader;
+
+  public SmileNearbyCacheCodec(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+    this.smileFactory = new SmileFactory()
+        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+    // Same mapping settings as the JSON object mapper of the application.
+    ObjectMapper smileMapper = objectMapperBuilder.factory(smileFactory).build();
+    TypeReference<List<RestaurantEntity>> type = new TypeReference<List<RestaurantEntity>>() {};
+    this.writer = smileMapper.writerFor(type);
+    this.reader = smileMapper.readerFor(type);
+  }
+
+  @Override
+  public String name() {
+    return "smile";
+  }
+
+  @Override
+  public byte version() {
+    return 1;
+  }
+
+  @Override
+  public byte[] encode(List<RestaurantEntity> restaurantEntities) throws IOException {
+    return writer.writeValueAsBytes(restaurantEntities);
+  }
+
+  @Override
+  public List<RestaurantEntity> decode(byte[] bytes, int offset, int length)
+      throws IOException {
+    return reader.readValue(bytes, offset, length);
+  }
+
+  @Override
+  public List<RestaurantEntity> decodeWithin(byte[] bytes, int offset, int length,
+      double latitude, double longitude, double radiusInKms) throws IOException {
+    try (JsonParser parser = smileFactory.createParser(bytes, offset, length)) {
+      return RestaurantEntityStreamReader.readWithin(parser, latitude, longitude, radiusInKms);
+    }
+  }
+}
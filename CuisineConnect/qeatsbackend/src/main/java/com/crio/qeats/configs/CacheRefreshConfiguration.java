@@ -0,0 +1,42 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class CacheRefreshConfiguration {
+
+  /**
+   * Small pool reloading nearby cache entries ahead of their expiry.
+   * Refreshing ahead is best effort, so refreshes that do not fit in the queue are dropped and
+   * those entries simply expire.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor nearbyCacheRefreshExecutor(
+      @Value("${qeats.cache.nearby.refresh.pool-size:2}") int poolSize,
+      MeterRegistry meterRegistry) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(64);
+    executor.setThreadNamePrefix("cache-refresh-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.initialize();
+
+    new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "nearby-cache-refresh",
+        Tags.empty()).bindTo(meterRegistry);
+    return executor;
+  }
+}
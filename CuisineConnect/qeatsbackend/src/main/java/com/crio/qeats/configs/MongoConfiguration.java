@@ -0,0 +1,25 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import com.mongodb.MongoClientOptions;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MongoConfiguration {
+
+  /**
+   * Options of the Mongo client created by Spring Boot, with the round trip counter attached.
+   */
+  @Bean
+  public MongoClientOptions mongoClientOptions(MongoRoundTrips mongoRoundTrips) {
+    return MongoClientOptions.builder()
+        .addCommandListener(mongoRoundTrips)
+        .build();
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the commands sent to Mongo by the current thread while a {@link Scope} is open.
+ * The synchronous driver reports every command on the calling thread, so a scope opened
+ * around a search counts exactly the round trips of that search.
+ */
+@Component
+@Log4j2
+public class MongoRoundTrips implements CommandListener {
+
+  private final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+
+  /**
+   * Starts counting the round trips of the current thread; close the scope to stop.
+   * Scopes can be nested, the round trips of an inner scope are also counted by the outer one.
+   * @param name what is being counted, used in the log line written on close
+   */
+  public Scope begin(String name) {
+    Scope scope = new Scope(name, currentScope.get());
+    currentScope.set(scope);
+    return scope;
+  }
+
+  @Override
+  public void commandStarted(CommandStartedEvent event) {
+    Scope scope = currentScope.get();
+    if (scope != null) {
+      scope.roundTrips++;
+    }
+  }
+
+  @Override
+  public void commandSucceeded(CommandSucceededEvent event) {
+  }
+
+  @Override
+  public void commandFailed(CommandFailedEvent event) {
+  }
+
+  /**
+   * Round trips counted between {@link #begin} and {@link #close}.
+   */
+  public final class Scope implements AutoCloseable {
+
+    private final String name;
+    private final Scope parent;
+    private int roundTrips;
+
+    private Scope(String name, Scope parent) {
+      this.name = name;
+      this.parent = parent;
+    }
+
+    public int getRoundTrips() {
+      return roundTrips;
+    }
+
+    @Override
+    public void close() {
+      if (parent != null) {
+        parent.roundTrips += roundTrips;
+        currentScope.set(parent);
+      } else {
+        currentScope.remove();
+      }
+      log.debug("{} took {} Mongo round trips", name, roundTrips);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters of the stages of nearby lookups and searches, so the time of a slow request can be
+ * split between the caches, Mongo, filtering and mapping:
+ * <ul>
+ *   <li>"qeats.stage.duration", tagged by stage and operation</li>
+ *   <li>"qeats.search.source.duration", tagged by search source</li>
+ *   <li>"qeats.candidates" and "qeats.results", the number of restaurants considered and
+ *       returned, tagged by operation</li>
+ * </ul>
+ * Operations are "nearby", "search" for merged search results, or the name of a search
+ * source, e.g. "itemName". Every meter publishes a percentile histogram, so percentiles can be
+ * aggregated across instances.
+ */
+@Component
+public class QeatsMetrics {
+
+  public static final String NEARBY = "nearby";
+  public static final String SEARCH = "search";
+
+  private static final String STAGE_METER = "qeats.stage.duration";
+  private static final String SOURCE_METER = "qeats.search.source.duration";
+  private static final String CANDIDATES_METER = "qeats.candidates";
+  private static final String RESULTS_METER = "qeats.results";
+
+  public enum Stage {
+    CACHE, MONGO, FILTER, MAPPING
+  }
+
+  private final MeterRegistry meterRegistry;
+  // Built once per tag combination, so recording does not look the meter up every time.
+  private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+  private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+  public QeatsMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Timer of one stage of the given operation.
+   */
+  public Timer stage(Stage stage, String operation) {
+    String tag = stage.name().toLowerCase(Locale.ROOT);
+    return timers.computeIfAbsent(STAGE_METER + ":" + tag + ":" + operation,
+        key -> Timer.builder(STAGE_METER)
+            .description("Time spent in one stage of a nearby lookup or a search source")
+            .tag("stage", tag)
+            .tag("operation", operation)
+            .publishPercentileHistogram()
+            .register(meterRegistry));
+  }
+
+  /**
+   * Timer of a whole search source, from the cache lookup to the mapped restaurants.
+   */
+  public Timer searchSource(String source) {
+    return timers.computeIfAbsent(SOURCE_METER + ":" + source,
+        key -> Timer.builder(SOURCE_METER)
+            .description("Time spent in one search source")
+            .tag("source", source)
+            .publishPercentileHistogram()
+            .register(meterRegistry));
+  }
+
+  public Timer.Sample start() {
+    return Timer.start(meterRegistry);
+  }
+
+  /**
+   * Record how many restaurants the given operation filtered.
+   */
+  public void recordCandidates(String operation, int candidates) {
+    summary(CANDIDATES_METER, "Restaurants considered by a nearby lookup or a search source",
+        operation).record(candidates);
+  }
+
+  /**
+   * Record how many restaurants the given operation returned.
+   */
+  public void recordResults(String operation, int results) {
+    summary(RESULTS_METER, "Restaurants returned by a nearby lookup or a search",
+        operation).record(results);
+  }
+
+  private DistributionSummary summary(String name, String description, String operation) {
+    return summaries.computeIfAbsent(name + ":" + operation,
+        key -> DistributionSummary.builder(name)
+            .description(description)
+            .baseUnit("restaurants")
+            // Keeps the histogram to the buckets of realistic counts.
+            .maximumExpectedValue(100_000L)
+            .tag("operation", operation)
+            .publishPercentileHistogram()
+            .register(meterRegistry));
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks whether Redis is usable, so requests skip it while it is down instead of each waiting
+ * for a connection to fail.
+ * Requests and the {@link RedisHealthMonitor} probe report how their calls went. After
+ * failure-threshold consecutive failures the circuit opens and requests go to their fallback
+ * without touching Redis. Once open-ms passed, a single request is let through (half-open):
+ * its success closes the circuit again, its failure reopens it.
+ * The state is published in "qeats.redis.circuit.state" (0 closed, 1 half-open, 2 open) and
+ * every transition is counted in "qeats.redis.circuit.transitions".
+ */
+@Component
+@Log4j2
+public class RedisCircuitBreaker {
+
+  private static final String STATE_METER = "qeats.redis.circuit.state";
+  private static final String TRANSITIONS_METER = "qeats.redis.circuit.transitions";
+
+  public enum State {
+    CLOSED, HALF_OPEN, OPEN
+  }
+
+  private final MeterRegistry meterRegistry;
+  private final int failureThreshold;
+  private final long openMillis;
+
+  private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+  private final AtomicLong openedAtMillis = new AtomicLong();
+
+  public RedisCircuitBreaker(MeterRegistry meterRegistry,
+      @Value("${qeats.redis.circuit.failure-threshold:3}") int failureThreshold,
+      @Value("${qeats.redis.circuit.open-ms:5000}") long openMillis) {
+    this.meterRegistry = meterRegistry;
+    this.failureThreshold = failureThreshold;
+    this.openMillis = openMillis;
+    meterRegistry.gauge(STATE_METER, state, current -> current.get().ordinal());
+  }
+
+  public State getState() {
+    return state.get();
+  }
+
+  /**
+   * Whether a request may use Redis now.
+   * Answers from memory, without touching Redis.
+   */
+  public boolean allowRequest() {
+    State current = state.get();
+    if (current == State.CLOSED) {
+      return true;
+    }
+    if (current == State.OPEN
+        && System.currentTimeMillis() - openedAtMillis.get() >= openMillis) {
+      // Only the request winning the transition tries Redis.
+      return transition(State.OPEN, State.HALF_OPEN);
+    }
+    return false;
+  }
+
+  public void recordSuccess() {
+    consecutiveFailures.set(0);
+    State current = state.get();
+    if (current != State.CLOSED) {
+      transition(current, State.CLOSED);
+    }
+  }
+
+  public void recordFailure() {
+    int failures = consecutiveFailures.incrementAndGet();
+    State current = state.get();
+    if (current == State.HALF_OPEN
+        || (current == State.CLOSED && failures >= failureThreshold)) {
+      openedAtMillis.set(System.currentTimeMillis());
+      transition(current, State.OPEN);
+    }
+  }
+
+  private boolean transition(State from, State to) {
+    if (!state.compareAndSet(from, to)) {
+      return false;
+    }
+    log.info("Redis circuit {} -> {}", from, to);
+    meterRegistry.counter(TRANSITIONS_METER, "from", from.name().toLowerCase(Locale.ROOT),
+        "to", to.name().toLowerCase(Locale.ROOT)).increment();
+    return true;
+  }
+}
@@ -3,14 +3,26 @@ package com.crio.qeats.configs;
 
 import java.time.Duration;
 import javax.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
 
 
+/**
+ * Pool of connections to the Redis cache, and the generation its keys are namespaced by.
+ * Every cache key is prefixed with the current generation, see {@link #cacheKey}; moving to
+ * the next generation drops every entry at once without a flush, and the entries of older
+ * generations expire with their ttl. The generation is a counter in Redis, read again every
+ * qeats.cache.generation.refresh-ms, so building a key costs no round trip. Instances that
+ * have not read a new generation yet keep using the previous one meanwhile.
+ */
 @Component
+@Log4j2
 public class RedisConfiguration {
 
   // TODO: CRIO_TASK_MODULE_REDIS
@@ -28,8 +40,15 @@ public class RedisConfiguration {
   public static final String QUEUE_NAME = "rabbitmq-queue";
   public static final String ROUTING_KEY = "qeats.postorder";
 
+  // Counter holding the current cache generation; the only key that is not namespaced by it.
+  static final String CACHE_GENERATION_KEY = "qeats:generation";
+
   private transient int redisPort;
   private transient JedisPool jedisPool;
+  private volatile long cacheGeneration;
+
+  @Autowired
+  private transient RedisCircuitBreaker redisCircuitBreaker;
   
   // Build a Configuration for redis
   // Write the configuration for the JedisPool -> JedisPool Object
@@ -54,6 +73,7 @@ public class RedisConfiguration {
     } catch (Exception e) {
       e.printStackTrace();
     }
+    refreshCacheGeneration();
   }
   
   // we can set the JedisPoolConfiguration Seperately
@@ -65,8 +85,10 @@ public class RedisConfiguration {
     poolConfig.setMaxTotal(128);
     poolConfig.setMaxIdle(128);
     poolConfig.setMinIdle(16);
-    poolConfig.setTestOnBorrow(true);
-    poolConfig.setTestOnReturn(true);
+    // Connections are only checked while idle: a PING on every borrow and return would double
+    // the round trips of every call, and RedisHealthMonitor already tracks whether Redis is up.
+    poolConfig.setTestOnBorrow(false);
+    poolConfig.setTestOnReturn(false);
     poolConfig.setTestWhileIdle(true);
     poolConfig.setMinEvictableIdleTimeMillis(Duration.ofSeconds(60).toMillis());
     poolConfig.setTimeBetweenEvictionRunsMillis(Duration.ofSeconds(30).toMillis());
@@ -77,26 +99,65 @@ public class RedisConfiguration {
 
   /**
    * Checks is cache is intiailized and available.
-   * TIP: This would generally mean checking via {@link JedisPool}
+   * Answered by the {@link RedisCircuitBreaker}, without a round trip to Redis; callers report
+   * how their Redis calls went to it.
    * @return true / false if cache is available or not.
    */
   public boolean isCacheAvailable() {
+    return getJedisPool() != null && redisCircuitBreaker.allowRequest();
+  }
+
+  /**
+   * Key of the given cache entry in the current generation.
+   */
+  public String cacheKey(String key) {
+    return "g" + cacheGeneration + ":" + key;
+  }
 
-    if (jedisPool == null) {
-      return false;
+  public long getCacheGeneration() {
+    return cacheGeneration;
+  }
+
+  /**
+   * Move every instance to the next cache generation, dropping every cache entry at once.
+   * This instance uses it right away, the others once they read it again.
+   * @return the new generation
+   */
+  public long nextCacheGeneration() {
+    try (Jedis jedis = getJedisPool().getResource()) {
+      cacheGeneration = jedis.incr(CACHE_GENERATION_KEY);
+    }
+    log.info("Moved to cache generation {}", cacheGeneration);
+    return cacheGeneration;
+  }
+
+  /**
+   * Read the current cache generation from Redis, unless it is not available.
+   */
+  @Scheduled(fixedDelayString = "${qeats.cache.generation.refresh-ms:1000}")
+  public void refreshCacheGeneration() {
+    // Not getJedisPool: this is called while the pool is being created. Only a closed circuit
+    // is checked, so this never takes the single request a half-open circuit lets through.
+    if (jedisPool == null || redisCircuitBreaker.getState() != RedisCircuitBreaker.State.CLOSED) {
+      return;
     }
-    
     try (Jedis jedis = jedisPool.getResource()) {
-      return true;
+      String generation = jedis.get(CACHE_GENERATION_KEY);
+      // A flushed counter starts over at 0, like the entries it namespaced.
+      long current = generation == null ? 0 : Long.parseLong(generation);
+      if (current != cacheGeneration) {
+        log.info("Cache generation changed from {} to {}", cacheGeneration, current);
+        cacheGeneration = current;
+      }
     } catch (Exception e) {
-      e.printStackTrace();
-      return false;
+      log.warn("Could not read the cache generation, keeping {}", cacheGeneration, e);
     }
-
   }
 
   /**
    * Destroy the cache.
+   * Moves to the next generation rather than flushing Redis, which would drop unrelated data
+   * and send every request to Mongo at once.
    * TIP: This is useful if cache is stale or while performing tests.
    */
   public void destroyCache() {
@@ -110,7 +171,7 @@ public class RedisConfiguration {
     // }
     
     if (jedisPool != null) {
-      jedisPool.getResource().flushAll();
+      nextCacheGeneration();
       jedisPool.destroy();
       jedisPool = null;
     }
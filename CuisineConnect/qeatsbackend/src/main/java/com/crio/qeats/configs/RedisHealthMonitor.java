@@ -0,0 +1,45 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * Pings Redis in the background and reports the result to the {@link RedisCircuitBreaker}, so
+ * the circuit opens even while no request uses Redis, and closes again once it is back.
+ */
+@Component
+@Log4j2
+public class RedisHealthMonitor {
+
+  @Autowired
+  private transient RedisConfiguration redisConfiguration;
+
+  @Autowired
+  private transient RedisCircuitBreaker redisCircuitBreaker;
+
+  @Scheduled(fixedDelayString = "${qeats.redis.health.probe-interval-ms:1000}")
+  public void probe() {
+    JedisPool jedisPool = redisConfiguration.getJedisPool();
+    if (jedisPool == null) {
+      redisCircuitBreaker.recordFailure();
+      return;
+    }
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.ping();
+      redisCircuitBreaker.recordSuccess();
+    } catch (Exception e) {
+      log.debug("Redis health probe failed", e);
+      redisCircuitBreaker.recordFailure();
+    }
+  }
+}
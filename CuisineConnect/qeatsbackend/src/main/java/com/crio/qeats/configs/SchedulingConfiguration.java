@@ -0,0 +1,16 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Runs the @Scheduled background jobs, such as the Redis health probe.
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
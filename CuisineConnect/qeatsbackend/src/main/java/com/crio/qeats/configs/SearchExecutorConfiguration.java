@@ -0,0 +1,44 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class SearchExecutorConfiguration {
+
+  /**
+   * Bounded pool running the sources of a search in parallel.
+   * Its size, queue and completed tasks are published as the "search" executor metrics.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor searchExecutor(
+      @Value("${qeats.search.executor.pool-size:8}") int poolSize,
+      @Value("${qeats.search.executor.queue-capacity:256}") int queueCapacity,
+      MeterRegistry meterRegistry) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("search-");
+    // When saturated, sources are rejected and left out of the results, rather than run on
+    // the request thread with no deadline.
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.initialize();
+
+    new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "search", Tags.empty())
+        .bindTo(meterRegistry);
+    return executor;
+  }
+}
@@ -53,7 +53,7 @@ public class RestaurantController {
     boolean isSearch = searchFor != null && !searchFor.isEmpty();
     if (isSearch) {
       getRestaurantsResponse =
-          restaurantService.findRestaurantsBySearchQuery(getRestaurantsRequest, LocalTime.now());
+          restaurantService.findRestaurantsBySearchQueryMt(getRestaurantsRequest, LocalTime.now());
     } else {
 
       getRestaurantsResponse =
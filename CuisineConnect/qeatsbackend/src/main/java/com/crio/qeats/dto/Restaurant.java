@@ -8,6 +8,7 @@
 package com.crio.qeats.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.util.List;
 import lombok.Data;
 
@@ -47,7 +48,11 @@ public class Restaurant {
   private String opensAt;
   private String closesAt;
   private List<String> attributes;
-  
+
+  // Distance from the user, set by searches that order their results by it.
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Double distanceInKm;
+
 }
 
 
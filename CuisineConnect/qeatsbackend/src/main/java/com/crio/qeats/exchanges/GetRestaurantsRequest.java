@@ -43,5 +43,10 @@ public class GetRestaurantsRequest {
   
   private String searchFor;
 
+  // Number of nearest restaurants to return; the default limit when absent.
+  @Min(1)
+  @Max(100)
+  private Integer limit;
+
 }
 
@@ -6,6 +6,18 @@ public class GlobalConstants {
   public static final int GEOHASH_PRECISION = 7;
   public static final int REDIS_ENTRY_EXPIRY_IN_SECONDS = 3600;
 
+  // Largest serving radius of any time of the day; cached cell entries cover this radius.
+  public static final double MAX_SERVING_RADIUS_IN_KMS = 5.0;
+
+  // Most restaurants returned by a single search.
+  public static final int MAX_RESTAURANTS_PER_SEARCH = 100;
+
+  // Precision of the cells the in-memory restaurant index is bucketed by (~4.9km x 4.9km).
+  public static final int INDEX_GEOHASH_PRECISION = 5;
+
+  // Precision of the cells search results are cached by (~4.9km x 4.9km).
+  public static final int SEARCH_CACHE_GEOHASH_PRECISION = 5;
+
   // TIP(MODULE_RABBITMQ): RabbitMQ related configs.
   public static final String EXCHANGE_NAME = "rabbitmq-exchange";
   public static final String QUEUE_NAME = "rabbitmq-queue";
@@ -0,0 +1,249 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.cache.NearbyCacheCodecs;
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.models.RestaurantEntity;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.GeoCoordinate;
+import redis.clients.jedis.GeoRadiusResponse;
+import redis.clients.jedis.GeoUnit;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.params.geo.GeoRadiusParam;
+import redis.clients.util.SafeEncoder;
+
+/**
+ * Spatial index of all restaurants in Redis: their coordinates in a sorted set maintained
+ * with GEOADD, and each restaurant, encoded like the nearby cache entries, in a hash by id.
+ * A nearby lookup is a GEORADIUS, which filters and orders the restaurants by distance inside
+ * Redis, followed by a single HMGET of the restaurants it found.
+ * The index is shared by every instance, and its keys are not namespaced by the cache
+ * generation: it is not a cache, and a new generation must not drop it.
+ */
+@Component
+@ConditionalOnProperty(name = "qeats.nearby.strategy", havingValue = "redis")
+@Log4j2
+public class RedisGeoIndex {
+
+  static final String LOCATIONS_KEY = "geo:restaurants";
+  static final String RESTAURANTS_KEY = "geo:restaurants:entities";
+  private static final String LOADING_SUFFIX = ":loading:";
+  private static final int LOADING_TTL_SECONDS = 3600;
+  private static final int BATCH_SIZE = 1000;
+  // GEOADD only takes the latitudes of the Web Mercator projection.
+  private static final double MAX_LATITUDE = 85.05112878;
+
+  @Autowired
+  private transient MongoTemplate mongoTemplate;
+
+  @Autowired
+  private transient RedisConfiguration redisConfiguration;
+
+  @Autowired
+  private transient NearbyCacheCodecs nearbyCacheCodecs;
+
+  @Value("${qeats.geoindex.preload:true}")
+  private transient boolean preload;
+
+  private volatile boolean loaded;
+
+  private final Object patchLock = new Object();
+
+  // Latest patch of every restaurant patched while a reload runs, null otherwise.
+  private Map<String, RestaurantEntity> patchesWhileReloading;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    if (preload) {
+      try {
+        reload();
+      } catch (Exception e) {
+        log.warn("Could not load the Redis geo index, nearby lookups use the in-memory index",
+            e);
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the index from the restaurants collection, under temporary keys renamed over the
+   * current ones at the end, so lookups never see a half built index. The keys are unique to
+   * the reload, so reloads of several instances do not mix, and the patches made meanwhile are
+   * applied again once they are renamed, since the restaurants read before may predate them.
+   */
+  public synchronized void reload() throws IOException {
+    String loadingSuffix = LOADING_SUFFIX + UUID.randomUUID();
+    String loadingLocationsKey = LOCATIONS_KEY + loadingSuffix;
+    String loadingRestaurantsKey = RESTAURANTS_KEY + loadingSuffix;
+    synchronized (patchLock) {
+      patchesWhileReloading = new LinkedHashMap<>();
+    }
+    int indexed = 0;
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource();
+        CloseableIterator<RestaurantEntity> restaurantEntities =
+            mongoTemplate.stream(new Query(), RestaurantEntity.class)) {
+      try {
+        List<RestaurantEntity> batch = new ArrayList<>();
+        while (restaurantEntities.hasNext()) {
+          RestaurantEntity restaurantEntity = restaurantEntities.next();
+          if (isIndexable(restaurantEntity)) {
+            batch.add(restaurantEntity);
+          }
+          if (batch.size() == BATCH_SIZE || !restaurantEntities.hasNext()) {
+            add(jedis, loadingLocationsKey, loadingRestaurantsKey, batch);
+            indexed += batch.size();
+            batch.clear();
+          }
+        }
+
+        synchronized (patchLock) {
+          Pipeline pipeline = jedis.pipelined();
+          pipeline.multi();
+          if (indexed == 0) {
+            pipeline.del(LOCATIONS_KEY, RESTAURANTS_KEY);
+          } else {
+            pipeline.persist(loadingLocationsKey);
+            pipeline.persist(loadingRestaurantsKey);
+            pipeline.rename(loadingLocationsKey, LOCATIONS_KEY);
+            pipeline.rename(loadingRestaurantsKey, RESTAURANTS_KEY);
+          }
+          pipeline.exec();
+          pipeline.sync();
+          for (Map.Entry<String, RestaurantEntity> patch : patchesWhileReloading.entrySet()) {
+            write(jedis, patch.getKey(), patch.getValue());
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        jedis.del(loadingLocationsKey, loadingRestaurantsKey);
+        throw e;
+      }
+    } finally {
+      synchronized (patchLock) {
+        patchesWhileReloading = null;
+      }
+    }
+    loaded = true;
+    log.info("Indexed {} restaurants in Redis", indexed);
+  }
+
+  /**
+   * Whether this instance loaded the index, so lookups can be answered from it.
+   */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Replaces one restaurant in the index, or removes it when the given entity is null.
+   * Does not wait for a running reload.
+   * @param id Mongo id of the restaurant
+   * @param restaurantEntity the restaurant as it is now, or null if it was deleted
+   */
+  public void patch(String id, RestaurantEntity restaurantEntity) throws IOException {
+    synchronized (patchLock) {
+      try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+        write(jedis, id, restaurantEntity);
+      }
+      if (patchesWhileReloading != null) {
+        patchesWhileReloading.put(id, restaurantEntity);
+      }
+    }
+  }
+
+  /**
+   * Get the restaurants within the given circle, nearest first.
+   * @param latitude centre of the search
+   * @param longitude centre of the search
+   * @param radiusInKms search radius
+   * @param limit most restaurants returned
+   * @return restaurants within the radius, or an empty list if there is none
+   */
+  public List<RestaurantEntity> findWithin(double latitude, double longitude,
+      double radiusInKms, int limit) throws IOException {
+    try (Jedis jedis = redisConfiguration.getJedisPool().getResource()) {
+      List<GeoRadiusResponse> nearest = jedis.georadius(LOCATIONS_KEY, longitude, latitude,
+          radiusInKms, GeoUnit.KM, GeoRadiusParam.geoRadiusParam().sortAscending().count(limit));
+      if (nearest.isEmpty()) {
+        return new ArrayList<>();
+      }
+      byte[][] ids = new byte[nearest.size()][];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = nearest.get(i).getMember();
+      }
+
+      List<RestaurantEntity> restaurantEntities = new ArrayList<>(ids.length);
+      for (byte[] encoded : jedis.hmget(SafeEncoder.encode(RESTAURANTS_KEY), ids)) {
+        // Removed between the two commands, or written by an unknown (newer) codec.
+        List<RestaurantEntity> decoded = encoded == null ? null : nearbyCacheCodecs.decode(encoded);
+        if (decoded != null) {
+          restaurantEntities.addAll(decoded);
+        }
+      }
+      return restaurantEntities;
+    }
+  }
+
+  private void write(Jedis jedis, String id, RestaurantEntity restaurantEntity)
+      throws IOException {
+    if (restaurantEntity != null && isIndexable(restaurantEntity)) {
+      add(jedis, LOCATIONS_KEY, RESTAURANTS_KEY, Collections.singletonList(restaurantEntity));
+    } else {
+      Pipeline pipeline = jedis.pipelined();
+      pipeline.zrem(LOCATIONS_KEY, id);
+      pipeline.hdel(SafeEncoder.encode(RESTAURANTS_KEY), SafeEncoder.encode(id));
+      pipeline.sync();
+    }
+  }
+
+  private void add(Jedis jedis, String locationsKey, String restaurantsKey,
+      List<RestaurantEntity> restaurantEntities) throws IOException {
+    if (restaurantEntities.isEmpty()) {
+      return;
+    }
+    Map<String, GeoCoordinate> locations = new HashMap<>();
+    Map<byte[], byte[]> encoded = new HashMap<>();
+    for (RestaurantEntity restaurantEntity : restaurantEntities) {
+      locations.put(restaurantEntity.getId(), new GeoCoordinate(
+          restaurantEntity.getLongitude(), restaurantEntity.getLatitude()));
+      encoded.put(SafeEncoder.encode(restaurantEntity.getId()),
+          nearbyCacheCodecs.encode(Collections.singletonList(restaurantEntity)));
+    }
+    Pipeline pipeline = jedis.pipelined();
+    pipeline.geoadd(locationsKey, locations);
+    pipeline.hmset(SafeEncoder.encode(restaurantsKey), encoded);
+    if (!RESTAURANTS_KEY.equals(restaurantsKey)) {
+      // Left behind by a reload that died before renaming them.
+      pipeline.expire(locationsKey, LOADING_TTL_SECONDS);
+      pipeline.expire(restaurantsKey, LOADING_TTL_SECONDS);
+    }
+    pipeline.sync();
+  }
+
+  private static boolean isIndexable(RestaurantEntity restaurantEntity) {
+    return restaurantEntity.getId() != null && restaurantEntity.getLatitude() != null
+        && restaurantEntity.getLongitude() != null
+        && Math.abs(restaurantEntity.getLatitude()) <= MAX_LATITUDE;
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.utils.GeoHashUtils;
+import com.crio.qeats.utils.GeoUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory spatial index of all restaurants, bucketed by geohash cell.
+ * A nearby lookup only touches the restaurants of the cells covering the serving radius
+ * instead of every restaurant in the database.
+ */
+@Component
+@Log4j2
+public class RestaurantGeoIndex {
+
+  @Autowired
+  private transient RestaurantRepository restaurantRepository;
+
+  @Value("${qeats.geoindex.preload:true}")
+  private transient boolean preload;
+
+  // Replaced as a whole on every (re)load, so readers never see a half built index. Patches
+  // replace single cells; a cell never changes once built.
+  private volatile ConcurrentMap<String, Cell> cells;
+
+  // Cell of every indexed restaurant by Mongo id, for patches. Guarded by this.
+  private Map<String, String> cellsById;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    if (preload) {
+      reload();
+    }
+  }
+
+  /**
+   * Rebuilds the index from the restaurants collection.
+   */
+  public synchronized void reload() {
+    List<RestaurantEntity> restaurantEntities = restaurantRepository.findAll();
+    build(restaurantEntities);
+    log.info("Indexed {} restaurants into {} cells", restaurantEntities.size(), cells.size());
+  }
+
+  /**
+   * Rebuilds a loaded index every qeats.geoindex.reload-ms, for the changes no listener of this
+   * instance patches in: saves of other instances without change streams, tools and bulk
+   * updates.
+   */
+  @Scheduled(fixedDelayString = "${qeats.geoindex.reload-ms:3600000}",
+      initialDelayString = "${qeats.geoindex.reload-ms:3600000}")
+  public void reloadPeriodically() {
+    if (isLoaded()) {
+      reload();
+    }
+  }
+
+  /**
+   * Replaces the contents of the index with the given restaurants.
+   */
+  public synchronized void build(List<RestaurantEntity> restaurantEntities) {
+    Map<String, List<RestaurantEntity>> restaurantsByCell = new HashMap<>();
+    Map<String, String> newCellsById = new HashMap<>();
+    for (RestaurantEntity restaurantEntity : restaurantEntities) {
+      if (restaurantEntity.getLatitude() == null || restaurantEntity.getLongitude() == null) {
+        continue;
+      }
+      String cell = cellOf(restaurantEntity);
+      restaurantsByCell.computeIfAbsent(cell, key -> new ArrayList<>()).add(restaurantEntity);
+      if (restaurantEntity.getId() != null) {
+        newCellsById.put(restaurantEntity.getId(), cell);
+      }
+    }
+
+    ConcurrentMap<String, Cell> newCells = new ConcurrentHashMap<>();
+    restaurantsByCell.forEach((cell, restaurants) -> newCells.put(cell, new Cell(restaurants)));
+    cellsById = newCellsById;
+    cells = newCells;
+  }
+
+  /**
+   * Drops the index; it is loaded again on the next lookup.
+   */
+  public synchronized void invalidate() {
+    cells = null;
+    cellsById = null;
+  }
+
+  /**
+   * Replaces one restaurant in the index, or removes it when the given entity is null, without
+   * reloading the others. Does nothing while the index is not loaded.
+   * @param id Mongo id of the restaurant
+   * @param restaurantEntity the restaurant as it is now, or null if it was deleted
+   */
+  public synchronized void patch(String id, RestaurantEntity restaurantEntity) {
+    ConcurrentMap<String, Cell> snapshot = cells;
+    if (snapshot == null) {
+      return;
+    }
+
+    // Only the cells the restaurant leaves and joins are copied. It is taken out before it is
+    // put back, so a lookup meanwhile may miss it but never sees it twice.
+    String oldCell = cellsById.remove(id);
+    if (oldCell != null) {
+      List<RestaurantEntity> others = new ArrayList<>(snapshot.get(oldCell).restaurants);
+      others.removeIf(restaurant -> id.equals(restaurant.getId()));
+      if (others.isEmpty()) {
+        snapshot.remove(oldCell);
+      } else {
+        snapshot.put(oldCell, new Cell(others));
+      }
+    }
+    if (restaurantEntity != null && restaurantEntity.getLatitude() != null
+        && restaurantEntity.getLongitude() != null) {
+      String cell = cellOf(restaurantEntity);
+      Cell restaurants = snapshot.get(cell);
+      List<RestaurantEntity> updated =
+          restaurants == null ? new ArrayList<>() : new ArrayList<>(restaurants.restaurants);
+      updated.add(restaurantEntity);
+      snapshot.put(cell, new Cell(updated));
+      cellsById.put(id, cell);
+    }
+  }
+
+  public boolean isLoaded() {
+    return cells != null;
+  }
+
+  /**
+   * Get the restaurants of every cell that intersects the given circle.
+   * The result is a superset of the restaurants within the radius; callers still have to
+   * check the exact distance.
+   * @param latitude centre of the search
+   * @param longitude centre of the search
+   * @param radiusInKms search radius
+   * @return candidate restaurants, or an empty list if there is none
+   */
+  public List<RestaurantEntity> findCandidates(double latitude, double longitude,
+      double radiusInKms) {
+    Map<String, Cell> snapshot = ensureLoaded();
+
+    List<RestaurantEntity> candidates = new ArrayList<>();
+    for (String cell : GeoHashUtils.coveringCells(latitude, longitude, radiusInKms,
+        GlobalConstants.INDEX_GEOHASH_PRECISION)) {
+      Cell restaurants = snapshot.get(cell);
+      if (restaurants != null) {
+        candidates.addAll(restaurants.restaurants);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Get the restaurants strictly within the given circle, using the precomputed coordinates
+   * of each cell instead of the haversine distance of every candidate.
+   * @param latitude centre of the search
+   * @param longitude centre of the search
+   * @param radiusInKms search radius
+   * @return restaurants within the radius, or an empty list if there is none
+   */
+  public List<RestaurantEntity> findWithin(double latitude, double longitude,
+      double radiusInKms) {
+    Map<String, Cell> snapshot = ensureLoaded();
+
+    List<RestaurantEntity> restaurants = new ArrayList<>();
+    for (String cell : GeoHashUtils.coveringCells(latitude, longitude, radiusInKms,
+        GlobalConstants.INDEX_GEOHASH_PRECISION)) {
+      Cell candidates = snapshot.get(cell);
+      if (candidates == null) {
+        continue;
+      }
+      for (int index : GeoUtils.findIndicesWithinKm(latitude, longitude, radiusInKms,
+          candidates.latitudes, candidates.longitudes, candidates.cosLatitudes)) {
+        restaurants.add(candidates.restaurants.get(index));
+      }
+    }
+    return restaurants;
+  }
+
+  private Map<String, Cell> ensureLoaded() {
+    Map<String, Cell> snapshot = cells;
+    if (snapshot == null) {
+      synchronized (this) {
+        if (cells == null) {
+          reload();
+        }
+        snapshot = cells;
+      }
+    }
+    return snapshot;
+  }
+
+  private static String cellOf(RestaurantEntity restaurantEntity) {
+    return GeoHashUtils.cellOf(restaurantEntity.getLatitude(), restaurantEntity.getLongitude(),
+        GlobalConstants.INDEX_GEOHASH_PRECISION);
+  }
+
+  // Restaurants of one cell with their coordinates laid out for GeoUtils.findIndicesWithinKm.
+  private static final class Cell {
+
+    private final List<RestaurantEntity> restaurants;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] cosLatitudes;
+
+    private Cell(List<RestaurantEntity> restaurants) {
+      this.restaurants = restaurants;
+      this.latitudes = new double[restaurants.size()];
+      this.longitudes = new double[restaurants.size()];
+      for (int i = 0; i < restaurants.size(); i++) {
+        latitudes[i] = restaurants.get(i).getLatitude();
+        longitudes[i] = restaurants.get(i).getLongitude();
+      }
+      this.cosLatitudes = GeoUtils.cosLatitudes(latitudes);
+    }
+  }
+}
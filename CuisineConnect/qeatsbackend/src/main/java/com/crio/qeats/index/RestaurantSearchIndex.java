@@ -0,0 +1,228 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory inverted index of restaurant names and attributes, and of the names and attributes
+ * of the items on their menus, so searches do not scan the collections with regular
+ * expressions. A query word matches the words it is a prefix of, ignoring case; see
+ * {@link TokenIndex}. Searches return the Mongo ids of the matching restaurants.
+ */
+@Component
+@ConditionalOnProperty(name = "qeats.search.strategy", havingValue = "index")
+@Log4j2
+public class RestaurantSearchIndex {
+
+  @Autowired
+  private transient MongoTemplate mongoTemplate;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // Replaced as a whole on every (re)load, and patched in place under the write lock.
+  private Indexes indexes;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadOnStartup() {
+    reload();
+  }
+
+  /**
+   * Rebuilds the index from the restaurants and menus collections.
+   */
+  public synchronized void reload() {
+    Indexes newIndexes = new Indexes();
+    try (CloseableIterator<RestaurantEntity> restaurantEntities =
+        mongoTemplate.stream(new Query(), RestaurantEntity.class)) {
+      restaurantEntities.forEachRemaining(restaurantEntity ->
+          newIndexes.putRestaurant(restaurantEntity.getId(), restaurantEntity));
+    }
+    try (CloseableIterator<MenuEntity> menuEntities =
+        mongoTemplate.stream(new Query(), MenuEntity.class)) {
+      menuEntities.forEachRemaining(menuEntity ->
+          newIndexes.putMenu(menuEntity.getId(), menuEntity));
+    }
+
+    lock.writeLock().lock();
+    try {
+      indexes = newIndexes;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    log.info("Indexed {} restaurants and {} menu items for search",
+        newIndexes.names.size(), newIndexes.restaurantIdByItem.size());
+  }
+
+  public boolean isLoaded() {
+    lock.readLock().lock();
+    try {
+      return indexes != null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Replaces the name and attributes of one restaurant, or removes them when the given entity
+   * is null. Does nothing while the index is not loaded.
+   * @param id Mongo id of the restaurant
+   * @param restaurantEntity the restaurant as it is now, or null if it was deleted
+   */
+  public synchronized void patchRestaurant(String id, RestaurantEntity restaurantEntity) {
+    lock.writeLock().lock();
+    try {
+      if (indexes != null) {
+        indexes.putRestaurant(id, restaurantEntity);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Replaces the items of one menu, or removes them when the given entity is null. Does
+   * nothing while the index is not loaded.
+   * @param id Mongo id of the menu
+   * @param menuEntity the menu as it is now, or null if it was deleted
+   */
+  public synchronized void patchMenu(String id, MenuEntity menuEntity) {
+    lock.writeLock().lock();
+    try {
+      if (indexes != null) {
+        indexes.putMenu(id, menuEntity);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Restaurants with a name matching every word of the query.
+   */
+  public Set<String> findRestaurantIdsByName(String query) {
+    return search(snapshot -> snapshot.names.matchAll(TokenIndex.tokenize(query)));
+  }
+
+  /**
+   * Restaurants with attributes matching every word of the query.
+   */
+  public Set<String> findRestaurantIdsByAttributes(String query) {
+    return search(snapshot -> snapshot.attributes.matchAll(TokenIndex.tokenize(query)));
+  }
+
+  /**
+   * Restaurants serving an item with a name matching any word of the query.
+   */
+  public Set<String> findRestaurantIdsByItemName(String query) {
+    return search(snapshot -> snapshot.restaurantsOf(
+        snapshot.itemNames.matchAny(TokenIndex.tokenize(query))));
+  }
+
+  /**
+   * Restaurants serving an item with attributes matching every word of the query.
+   */
+  public Set<String> findRestaurantIdsByItemAttributes(String query) {
+    return search(snapshot -> snapshot.restaurantsOf(
+        snapshot.itemAttributes.matchAll(TokenIndex.tokenize(query))));
+  }
+
+  private Set<String> search(Search search) {
+    if (!isLoaded()) {
+      synchronized (this) {
+        if (!isLoaded()) {
+          reload();
+        }
+      }
+    }
+    lock.readLock().lock();
+    try {
+      return search.run(indexes);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private interface Search {
+    Set<String> run(Indexes snapshot);
+  }
+
+  private static final class Indexes {
+
+    private final TokenIndex names = new TokenIndex();
+    private final TokenIndex attributes = new TokenIndex();
+    // Items are indexed as "menuId/position", each mapped to the restaurant serving it.
+    private final TokenIndex itemNames = new TokenIndex();
+    private final TokenIndex itemAttributes = new TokenIndex();
+    private final Map<String, String> restaurantIdByItem = new HashMap<>();
+    private final Map<String, Integer> itemCountByMenu = new HashMap<>();
+
+    private void putRestaurant(String id, RestaurantEntity restaurantEntity) {
+      if (restaurantEntity == null) {
+        names.remove(id);
+        attributes.remove(id);
+        return;
+      }
+      names.put(id, Collections.singletonList(restaurantEntity.getName()));
+      attributes.put(id, restaurantEntity.getAttributes() == null
+          ? Collections.emptyList() : restaurantEntity.getAttributes());
+    }
+
+    private void putMenu(String id, MenuEntity menuEntity) {
+      Integer itemCount = itemCountByMenu.remove(id);
+      for (int position = 0; itemCount != null && position < itemCount; position++) {
+        String item = id + "/" + position;
+        itemNames.remove(item);
+        itemAttributes.remove(item);
+        restaurantIdByItem.remove(item);
+      }
+      if (menuEntity == null || menuEntity.getItems() == null) {
+        return;
+      }
+
+      List<Item> items = menuEntity.getItems();
+      for (int position = 0; position < items.size(); position++) {
+        String item = id + "/" + position;
+        itemNames.put(item, Collections.singletonList(items.get(position).getName()));
+        itemAttributes.put(item, items.get(position).getAttributes() == null
+            ? Collections.emptyList() : items.get(position).getAttributes());
+        restaurantIdByItem.put(item, menuEntity.getRestaurantId());
+      }
+      itemCountByMenu.put(id, items.size());
+    }
+
+    private Set<String> restaurantsOf(Set<String> items) {
+      Set<String> restaurantIds = new HashSet<>();
+      for (String item : items) {
+        String restaurantId = restaurantIdByItem.get(item);
+        if (restaurantId != null) {
+          restaurantIds.add(restaurantId);
+        }
+      }
+      return restaurantIds;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index of the words of some documents: every prefix of every word, up to
+ * {@link #MAX_GRAM_LENGTH} characters, maps to the documents with such a word. A query word
+ * matches the documents with a word it is a prefix of.
+ * Not thread safe; {@link RestaurantSearchIndex} guards it.
+ */
+final class TokenIndex {
+
+  static final int MAX_GRAM_LENGTH = 15;
+
+  private final Map<String, Set<String>> postings = new HashMap<>();
+  // Words of each document, to remove it and to check query words longer than the grams.
+  private final Map<String, List<String>> tokensByDocument = new HashMap<>();
+
+  /**
+   * Lowercase words of the given text, split on anything but letters and digits.
+   */
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null) {
+      return tokens;
+    }
+    for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+      if (!token.isEmpty()) {
+        tokens.add(token);
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Index the words of the given texts under the document, replacing its previous words.
+   */
+  void put(String document, Collection<String> texts) {
+    remove(document);
+    List<String> tokens = new ArrayList<>();
+    for (String text : texts) {
+      tokens.addAll(tokenize(text));
+    }
+    if (tokens.isEmpty()) {
+      return;
+    }
+    tokensByDocument.put(document, tokens);
+    for (String token : tokens) {
+      for (int length = 1; length <= Math.min(token.length(), MAX_GRAM_LENGTH); length++) {
+        postings.computeIfAbsent(token.substring(0, length), gram -> new HashSet<>())
+            .add(document);
+      }
+    }
+  }
+
+  void remove(String document) {
+    List<String> tokens = tokensByDocument.remove(document);
+    if (tokens == null) {
+      return;
+    }
+    for (String token : tokens) {
+      for (int length = 1; length <= Math.min(token.length(), MAX_GRAM_LENGTH); length++) {
+        String gram = token.substring(0, length);
+        Set<String> documents = postings.get(gram);
+        if (documents != null && documents.remove(document) && documents.isEmpty()) {
+          postings.remove(gram);
+        }
+      }
+    }
+  }
+
+  /**
+   * Documents matching every one of the query words; none for no words.
+   */
+  Set<String> matchAll(List<String> queryTokens) {
+    Set<String> documents = null;
+    for (String queryToken : queryTokens) {
+      if (documents == null) {
+        documents = new HashSet<>(match(queryToken));
+      } else {
+        documents.retainAll(match(queryToken));
+      }
+      if (documents.isEmpty()) {
+        break;
+      }
+    }
+    return documents == null ? new HashSet<>() : documents;
+  }
+
+  /**
+   * Documents matching any of the query words.
+   */
+  Set<String> matchAny(List<String> queryTokens) {
+    Set<String> documents = new HashSet<>();
+    for (String queryToken : queryTokens) {
+      documents.addAll(match(queryToken));
+    }
+    return documents;
+  }
+
+  int size() {
+    return tokensByDocument.size();
+  }
+
+  private Set<String> match(String queryToken) {
+    if (queryToken.length() <= MAX_GRAM_LENGTH) {
+      return postings.getOrDefault(queryToken, Collections.emptySet());
+    }
+    Set<String> documents = new HashSet<>();
+    for (String document : postings.getOrDefault(queryToken.substring(0, MAX_GRAM_LENGTH),
+        Collections.emptySet())) {
+      if (tokensByDocument.get(document).stream().anyMatch(token -> token.startsWith(queryToken))) {
+        documents.add(document);
+      }
+    }
+    return documents;
+  }
+}
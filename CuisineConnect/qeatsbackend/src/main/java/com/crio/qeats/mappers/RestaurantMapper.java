@@ -0,0 +1,68 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.mappers;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps the Mongo entities to the DTOs returned by the APIs.
+ * Field by field copies, equivalent to the ModelMapper mapping but without building a mapper
+ * and its type map for every element; the instance is stateless and shared.
+ */
+@Component
+public class RestaurantMapper {
+
+  /**
+   * Maps a restaurant entity to its DTO; null stays null.
+   */
+  public Restaurant toRestaurant(RestaurantEntity restaurantEntity) {
+    if (restaurantEntity == null) {
+      return null;
+    }
+    Restaurant restaurant = new Restaurant();
+    restaurant.setRestaurantId(restaurantEntity.getRestaurantId());
+    restaurant.setName(restaurantEntity.getName());
+    restaurant.setCity(restaurantEntity.getCity());
+    restaurant.setImageUrl(restaurantEntity.getImageUrl());
+    restaurant.setLatitude(restaurantEntity.getLatitude());
+    restaurant.setLongitude(restaurantEntity.getLongitude());
+    restaurant.setOpensAt(restaurantEntity.getOpensAt());
+    restaurant.setClosesAt(restaurantEntity.getClosesAt());
+    // Entities can be shared by the caches, so the DTO gets its own list.
+    restaurant.setAttributes(copyOf(restaurantEntity.getAttributes()));
+    return restaurant;
+  }
+
+  /**
+   * Maps an item entity to its DTO; null stays null.
+   */
+  public Item toItem(ItemEntity itemEntity) {
+    if (itemEntity == null) {
+      return null;
+    }
+    Item item = new Item();
+    item.setId(itemEntity.getId());
+    item.setItemId(itemEntity.getItemId());
+    item.setName(itemEntity.getName());
+    item.setImageUrl(itemEntity.getImageUrl());
+    item.setAttributes(copyOf(itemEntity.getAttributes()));
+    if (itemEntity.getPrice() != null) {
+      item.setPrice(itemEntity.getPrice().intValue());
+    }
+    return item;
+  }
+
+  private static List<String> copyOf(List<String> values) {
+    return values == null ? null : new ArrayList<>(values);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.models;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Opening hours of a restaurant, parsed once into minute-of-day intervals.
+ * An interval whose end is not after its start crosses midnight (e.g. 18:00-02:00).
+ * A restaurant is open strictly between the start and the end of one of its intervals.
+ */
+public final class OpeningHours {
+
+  private static final int MINUTES_PER_DAY = 24 * 60;
+
+  // startMinutes[i] and endMinutes[i] delimit the i-th interval.
+  private final int[] startMinutes;
+  private final int[] endMinutes;
+
+  private OpeningHours(int[] startMinutes, int[] endMinutes) {
+    this.startMinutes = startMinutes;
+    this.endMinutes = endMinutes;
+  }
+
+  /**
+   * Parses the opening hours of a restaurant.
+   * @param opensAt opening time as HH:mm, used when there are no slots
+   * @param closesAt closing time as HH:mm, used when there are no slots
+   * @param slots optional list of HH:mm-HH:mm intervals; takes precedence when not empty
+   * @return the parsed opening hours
+   */
+  public static OpeningHours of(String opensAt, String closesAt, List<String> slots) {
+    if (slots == null || slots.isEmpty()) {
+      return new OpeningHours(new int[] {minuteOfDay(opensAt)},
+          new int[] {minuteOfDay(closesAt)});
+    }
+
+    int[] startMinutes = new int[slots.size()];
+    int[] endMinutes = new int[slots.size()];
+    for (int i = 0; i < slots.size(); i++) {
+      String slot = slots.get(i);
+      int separator = slot.indexOf('-');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Invalid opening slot: " + slot);
+      }
+      startMinutes[i] = minuteOfDay(slot.substring(0, separator).trim());
+      endMinutes[i] = minuteOfDay(slot.substring(separator + 1).trim());
+    }
+    return new OpeningHours(startMinutes, endMinutes);
+  }
+
+  /**
+   * Whether the restaurant is open at the given time of the day.
+   */
+  public boolean isOpenAt(LocalTime time) {
+    return isOpenAt(time.toSecondOfDay());
+  }
+
+  /**
+   * Whether the restaurant is open at the given second of the day.
+   */
+  public boolean isOpenAt(int secondOfDay) {
+    for (int i = 0; i < startMinutes.length; i++) {
+      int start = startMinutes[i] * 60;
+      int end = endMinutes[i] * 60;
+      if (start < end) {
+        if (secondOfDay > start && secondOfDay < end) {
+          return true;
+        }
+      } else if (secondOfDay > start || secondOfDay < end) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int minuteOfDay(String time) {
+    int minute = LocalTime.parse(time).toSecondOfDay() / 60;
+    return minute % MINUTES_PER_DAY;
+  }
+}
@@ -6,16 +6,23 @@
 
 package com.crio.qeats.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import java.util.ArrayList;
 import java.util.List;
 import javax.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 // Java class that maps to Mongo collection.
+// Coordinates are written first so cached entries can be filtered by distance while parsing.
 @Data
+@JsonPropertyOrder({"latitude", "longitude"})
 @Document(collection = "restaurants")
 @NoArgsConstructor
 public class RestaurantEntity {
@@ -50,5 +57,46 @@ public class RestaurantEntity {
   @NotNull
   private List<String> attributes = new ArrayList<>();
 
+  // Optional HH:mm-HH:mm intervals for restaurants open more than once a day; when present
+  // they replace opensAt/closesAt.
+  private List<String> openingSlots;
+
+  // GeoJSON copy of latitude/longitude so Mongo can answer nearby queries itself.
+  // Kept in sync by RestaurantLocationListener; not part of the cached JSON.
+  @JsonIgnore
+  @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
+  private GeoJsonPoint location;
+
+  // Parsed form of the fields above, built on first use after load or cache decode.
+  @JsonIgnore
+  private transient OpeningHours openingHours;
+
+  /**
+   * Opening hours of the restaurant, parsed once per loaded entity.
+   */
+  public OpeningHours getOpeningHours() {
+    OpeningHours parsed = openingHours;
+    if (parsed == null) {
+      parsed = OpeningHours.of(opensAt, closesAt, openingSlots);
+      openingHours = parsed;
+    }
+    return parsed;
+  }
+
+  public void setOpensAt(String opensAt) {
+    this.opensAt = opensAt;
+    this.openingHours = null;
+  }
+
+  public void setClosesAt(String closesAt) {
+    this.closesAt = closesAt;
+    this.openingHours = null;
+  }
+
+  public void setOpeningSlots(List<String> openingSlots) {
+    this.openingSlots = openingSlots;
+    this.openingHours = null;
+  }
+
 }
 
@@ -0,0 +1,295 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositories;
+
+import ch.hsr.geohash.WGS84Point;
+import com.crio.qeats.cache.CacheInvalidator;
+import com.crio.qeats.index.RedisGeoIndex;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.index.RestaurantSearchIndex;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Watches the restaurants, menus and items collections through change streams, and drops only
+ * the cache entries each change can make stale, whichever instance or tool made it.
+ * A restaurant change drops the nearby entries and searches around its old and new location
+ * and patches the geo index; a menu or item change drops the searches around the restaurants
+ * serving it.
+ * Change streams need a replica set, so this is only enabled by
+ * qeats.cache.invalidation.change-streams; otherwise {@link CacheInvalidationListener} drops
+ * the searches on saves made by this instance.
+ */
+@Component
+@ConditionalOnProperty(name = "qeats.cache.invalidation.change-streams", havingValue = "true")
+@Log4j2
+public class CacheChangeStreamListener {
+
+  static final String RESTAURANTS = "restaurants";
+  static final String MENUS = "menus";
+  static final String ITEMS = "items";
+
+  @Autowired
+  private transient MongoTemplate mongoTemplate;
+
+  @Autowired
+  private transient MenuRepository menuRepository;
+
+  @Autowired
+  private transient CacheInvalidator cacheInvalidator;
+
+  @Autowired
+  private transient RestaurantGeoIndex restaurantGeoIndex;
+
+  @Autowired(required = false)
+  private transient RedisGeoIndex redisGeoIndex;
+
+  @Autowired(required = false)
+  private transient RestaurantSearchIndex restaurantSearchIndex;
+
+  @Value("${qeats.cache.invalidation.start-timeout-ms:10000}")
+  private transient long startTimeoutMillis;
+
+  // Location of every restaurant by Mongo id, as of the last change seen. Change streams of
+  // Mongo 4.0 and older carry no pre-image, so this is where the cells a restaurant moved or
+  // was deleted from are found.
+  private final ConcurrentMap<String, WGS84Point> restaurantLocations =
+      new ConcurrentHashMap<>();
+
+  private MessageListenerContainer container;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() throws InterruptedException {
+    container = new DefaultMessageListenerContainer(mongoTemplate);
+    container.start();
+    // Updates only carry the changed fields; look the whole document up instead.
+    ChangeStreamOptions changeStreamOptions =
+        ChangeStreamOptions.builder().returnFullDocumentOnUpdate().build();
+    String databaseName = mongoTemplate.getDb().getName();
+    List<Subscription> subscriptions = new ArrayList<>();
+    for (String collection : Arrays.asList(RESTAURANTS, MENUS, ITEMS)) {
+      ChangeStreamRequest<Document> request = new ChangeStreamRequest<>(
+          message -> onChange(collection, message.getRaw()),
+          new ChangeStreamRequest.ChangeStreamRequestOptions(databaseName, collection,
+              changeStreamOptions));
+      subscriptions.add(container.register(request, Document.class));
+    }
+    for (Subscription subscription : subscriptions) {
+      if (!subscription.await(Duration.ofMillis(startTimeoutMillis))) {
+        log.warn("Change stream not active after {} ms", startTimeoutMillis);
+      }
+    }
+
+    // Loaded after the streams are open, so no move in between goes unnoticed; locations
+    // already seen by the streams are newer than the ones read here.
+    Query query = new Query();
+    query.fields().include("latitude").include("longitude");
+    for (RestaurantEntity restaurantEntity : mongoTemplate.find(query, RestaurantEntity.class)) {
+      WGS84Point location = locationOf(restaurantEntity);
+      if (location != null) {
+        restaurantLocations.putIfAbsent(restaurantEntity.getId(), location);
+      }
+    }
+    log.info("Watching {} for cache invalidation, {} restaurant locations loaded",
+        Arrays.asList(RESTAURANTS, MENUS, ITEMS), restaurantLocations.size());
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (container != null) {
+      container.stop();
+    }
+  }
+
+  /**
+   * Drop the cache entries the given change can make stale.
+   * @param collection name of the collection that changed
+   * @param change the change, with the full document of inserts, replaces and updates
+   */
+  void onChange(String collection, ChangeStreamDocument<Document> change) {
+    try {
+      switch (collection) {
+        case RESTAURANTS:
+          onRestaurantChange(change);
+          break;
+        case MENUS:
+          onMenuChange(change);
+          break;
+        case ITEMS:
+          onItemChange(change);
+          break;
+        default:
+          break;
+      }
+    } catch (Exception e) {
+      log.warn("Could not invalidate the caches for a change of {}", collection, e);
+    }
+  }
+
+  private void onRestaurantChange(ChangeStreamDocument<Document> change) throws IOException {
+    String id = idOf(change);
+    Document fullDocument = change.getFullDocument();
+    if (id == null || !isDocumentChange(change.getOperationType())) {
+      // Drop, rename or invalidate: the whole collection is in question.
+      cacheInvalidator.invalidateAll();
+      restaurantGeoIndex.invalidate();
+      if (redisGeoIndex != null) {
+        redisGeoIndex.reload();
+      }
+      if (restaurantSearchIndex != null) {
+        restaurantSearchIndex.reload();
+      }
+      return;
+    }
+
+    WGS84Point oldLocation;
+    RestaurantEntity restaurantEntity = null;
+    WGS84Point newLocation = null;
+    // The full document of an update is looked up later, and is null if it was deleted since.
+    if (fullDocument == null) {
+      oldLocation = restaurantLocations.remove(id);
+    } else {
+      restaurantEntity = mongoTemplate.getConverter().read(RestaurantEntity.class, fullDocument);
+      newLocation = locationOf(restaurantEntity);
+      oldLocation = newLocation == null
+          ? restaurantLocations.remove(id) : restaurantLocations.put(id, newLocation);
+    }
+
+    // Patched first, so the entries dropped below are not loaded again from the old state.
+    restaurantGeoIndex.patch(id, restaurantEntity);
+    if (redisGeoIndex != null) {
+      try {
+        redisGeoIndex.patch(id, restaurantEntity);
+      } catch (Exception e) {
+        log.warn("Could not update restaurant {} in the Redis geo index", id, e);
+      }
+    }
+    if (restaurantSearchIndex != null) {
+      restaurantSearchIndex.patchRestaurant(id, restaurantEntity);
+    }
+
+    if (oldLocation == null && change.getOperationType() != OperationType.INSERT) {
+      log.info("Location of restaurant {} before the change is unknown, dropping all", id);
+      cacheInvalidator.invalidateAll();
+    } else if (oldLocation != null) {
+      cacheInvalidator.invalidateRestaurantAt(oldLocation.getLatitude(),
+          oldLocation.getLongitude());
+    }
+    if (newLocation != null && !newLocation.equals(oldLocation)) {
+      cacheInvalidator.invalidateRestaurantAt(newLocation.getLatitude(),
+          newLocation.getLongitude());
+    }
+  }
+
+  private void onMenuChange(ChangeStreamDocument<Document> change) {
+    Document fullDocument = change.getFullDocument();
+    patchSearchIndex(change, fullDocument);
+    if (fullDocument == null || fullDocument.getString("restaurantId") == null) {
+      // A deleted menu leaves only its id behind.
+      cacheInvalidator.invalidateAllSearches();
+      return;
+    }
+    invalidateSearchesAround(Collections.singletonList(fullDocument.getString("restaurantId")));
+  }
+
+  private void onItemChange(ChangeStreamDocument<Document> change) {
+    Document fullDocument = change.getFullDocument();
+    if (fullDocument == null || fullDocument.getString("itemId") == null) {
+      cacheInvalidator.invalidateAllSearches();
+      return;
+    }
+    List<String> restaurantIds = menuRepository
+        .findMenusByItemsItemIdIn(Collections.singletonList(fullDocument.getString("itemId")))
+        .orElse(Collections.emptyList()).stream()
+        .map(MenuEntity::getRestaurantId)
+        .distinct()
+        .collect(Collectors.toList());
+    invalidateSearchesAround(restaurantIds);
+  }
+
+  private void patchSearchIndex(ChangeStreamDocument<Document> change, Document fullDocument) {
+    if (restaurantSearchIndex == null) {
+      return;
+    }
+    String id = idOf(change);
+    if (id == null || !isDocumentChange(change.getOperationType())) {
+      restaurantSearchIndex.reload();
+    } else {
+      restaurantSearchIndex.patchMenu(id, fullDocument == null
+          ? null : mongoTemplate.getConverter().read(MenuEntity.class, fullDocument));
+    }
+  }
+
+  private void invalidateSearchesAround(Collection<String> restaurantIds) {
+    if (restaurantIds.isEmpty()) {
+      return;
+    }
+    Query query = new Query(Criteria.where("restaurantId").in(restaurantIds));
+    query.fields().include("latitude").include("longitude");
+    for (RestaurantEntity restaurantEntity : mongoTemplate.find(query, RestaurantEntity.class)) {
+      WGS84Point location = locationOf(restaurantEntity);
+      if (location != null) {
+        cacheInvalidator.invalidateSearchesAround(location.getLatitude(),
+            location.getLongitude());
+      }
+    }
+  }
+
+  private static boolean isDocumentChange(OperationType operationType) {
+    return operationType == OperationType.INSERT || operationType == OperationType.REPLACE
+        || operationType == OperationType.UPDATE || operationType == OperationType.DELETE;
+  }
+
+  // Ids are stored as ObjectIds when they look like one, see MappingMongoConverter.
+  private static String idOf(ChangeStreamDocument<Document> change) {
+    if (change.getDocumentKey() == null) {
+      return null;
+    }
+    BsonValue id = change.getDocumentKey().get("_id");
+    if (id == null) {
+      return null;
+    }
+    return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+  }
+
+  private static WGS84Point locationOf(RestaurantEntity restaurantEntity) {
+    if (restaurantEntity.getLatitude() == null || restaurantEntity.getLongitude() == null) {
+      return null;
+    }
+    return new WGS84Point(restaurantEntity.getLatitude(), restaurantEntity.getLongitude());
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositories;
+
+import com.crio.qeats.cache.CacheInvalidator;
+import com.crio.qeats.index.RedisGeoIndex;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.index.RestaurantSearchIndex;
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import lombok.extern.log4j.Log4j2;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops the negative cache entries and the cached search results whenever a restaurant, menu
+ * or item is saved or deleted, since any of them can change what a search or an empty cell
+ * finds. Bulk updates that bypass the mapping layer do not publish these events, and other
+ * instances do not see them; {@link CacheChangeStreamListener} replaces this listener where
+ * change streams are available.
+ * Saved and deleted restaurants are also patched into the {@link RestaurantGeoIndex} and the
+ * {@link RedisGeoIndex}, and restaurants and menus into the {@link RestaurantSearchIndex}, when
+ * they are in use.
+ */
+@Component
+@ConditionalOnProperty(name = "qeats.cache.invalidation.change-streams", havingValue = "false",
+    matchIfMissing = true)
+@Log4j2
+public class CacheInvalidationListener extends AbstractMongoEventListener<Object> {
+
+  @Autowired
+  private transient CacheInvalidator cacheInvalidator;
+
+  @Autowired
+  private transient RestaurantGeoIndex restaurantGeoIndex;
+
+  @Autowired(required = false)
+  private transient RedisGeoIndex redisGeoIndex;
+
+  @Autowired(required = false)
+  private transient RestaurantSearchIndex restaurantSearchIndex;
+
+  @Override
+  public void onAfterSave(AfterSaveEvent<Object> event) {
+    // The indexes are patched first, so the searches dropped below are not run again on the
+    // old state.
+    if (event.getSource() instanceof RestaurantEntity) {
+      RestaurantEntity restaurantEntity = (RestaurantEntity) event.getSource();
+      restaurantGeoIndex.patch(restaurantEntity.getId(), restaurantEntity);
+      patchRedisGeoIndex(restaurantEntity.getId(), restaurantEntity);
+      if (restaurantSearchIndex != null) {
+        restaurantSearchIndex.patchRestaurant(restaurantEntity.getId(), restaurantEntity);
+      }
+    } else if (event.getSource() instanceof MenuEntity && restaurantSearchIndex != null) {
+      MenuEntity menuEntity = (MenuEntity) event.getSource();
+      restaurantSearchIndex.patchMenu(menuEntity.getId(), menuEntity);
+    }
+    if (isRelevant(event.getSource().getClass())) {
+      cacheInvalidator.invalidateAllSearches();
+    }
+  }
+
+  @Override
+  public void onAfterDelete(AfterDeleteEvent<Object> event) {
+    // Only deletes by id name the document; the indexes are reloaded on the next start otherwise.
+    Object id = event.getSource().get("_id");
+    if (id != null && !(id instanceof Document)) {
+      if (RestaurantEntity.class.equals(event.getType())) {
+        restaurantGeoIndex.patch(id.toString(), null);
+        patchRedisGeoIndex(id.toString(), null);
+        if (restaurantSearchIndex != null) {
+          restaurantSearchIndex.patchRestaurant(id.toString(), null);
+        }
+      } else if (MenuEntity.class.equals(event.getType()) && restaurantSearchIndex != null) {
+        restaurantSearchIndex.patchMenu(id.toString(), null);
+      }
+    }
+    // The deleted document is gone; its type is all that is left to go by.
+    if (isRelevant(event.getType())) {
+      cacheInvalidator.invalidateAllSearches();
+    }
+  }
+
+  private void patchRedisGeoIndex(String id, RestaurantEntity restaurantEntity) {
+    if (redisGeoIndex == null || id == null) {
+      return;
+    }
+    try {
+      redisGeoIndex.patch(id, restaurantEntity);
+    } catch (Exception e) {
+      log.warn("Could not update restaurant {} in the Redis geo index", id, e);
+    }
+  }
+
+  private static boolean isRelevant(Class<?> type) {
+    return type == RestaurantEntity.class || type == MenuEntity.class
+        || type == ItemEntity.class;
+  }
+}
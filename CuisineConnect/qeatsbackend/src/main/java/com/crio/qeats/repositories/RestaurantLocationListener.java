@@ -0,0 +1,33 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositories;
+
+import com.crio.qeats.models.RestaurantEntity;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the GeoJSON location of a restaurant in sync with its latitude/longitude on every
+ * save, so the 2dsphere index never goes stale.
+ */
+@Component
+public class RestaurantLocationListener extends AbstractMongoEventListener<RestaurantEntity> {
+
+  @Override
+  public void onBeforeConvert(BeforeConvertEvent<RestaurantEntity> event) {
+    RestaurantEntity restaurantEntity = event.getSource();
+    if (restaurantEntity.getLatitude() != null && restaurantEntity.getLongitude() != null) {
+      // GeoJSON points are (longitude, latitude).
+      restaurantEntity.setLocation(new GeoJsonPoint(restaurantEntity.getLongitude(),
+          restaurantEntity.getLatitude()));
+    } else {
+      restaurantEntity.setLocation(null);
+    }
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.models.RestaurantEntity;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scan path: looks the restaurants up in the in-memory {@link RestaurantGeoIndex}.
+ */
+@Component
+@ConditionalOnProperty(name = "qeats.nearby.strategy", havingValue = "scan", matchIfMissing = true)
+public class GeoIndexNearbyRestaurantsFinder implements NearbyRestaurantsFinder {
+
+  @Autowired
+  private transient RestaurantGeoIndex restaurantGeoIndex;
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsNear(double latitude, double longitude,
+      double radiusInKms) {
+    return restaurantGeoIndex.findWithin(latitude, longitude, radiusInKms);
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.models.RestaurantEntity;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Geo-query path: lets Mongo find the restaurants with {@code $nearSphere} on the 2dsphere
+ * index of {@link RestaurantEntity#getLocation()}. Results come back nearest first.
+ */
+@Component
+@ConditionalOnProperty(name = "qeats.nearby.strategy", havingValue = "geo")
+public class GeoQueryNearbyRestaurantsFinder implements NearbyRestaurantsFinder {
+
+  static final int MAX_RESULTS = 100;
+
+  @Autowired
+  private transient MongoTemplate mongoTemplate;
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsNear(double latitude, double longitude,
+      double radiusInKms) {
+    return mongoTemplate.find(nearSphere(latitude, longitude, radiusInKms).limit(MAX_RESULTS),
+        RestaurantEntity.class);
+  }
+
+  @Override
+  public List<RestaurantEntity> findAllRestaurantsNear(double latitude, double longitude,
+      double radiusInKms) {
+    return mongoTemplate.find(nearSphere(latitude, longitude, radiusInKms),
+        RestaurantEntity.class);
+  }
+
+  private static Query nearSphere(double latitude, double longitude, double radiusInKms) {
+    // With a GeoJSON point $maxDistance is in meters.
+    return new Query(Criteria.where("location")
+        .nearSphere(new GeoJsonPoint(longitude, latitude))
+        .maxDistance(radiusInKms * 1000));
+  }
+}
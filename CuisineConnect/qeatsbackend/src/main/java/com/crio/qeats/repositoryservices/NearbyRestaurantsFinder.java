@@ -0,0 +1,51 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.models.RestaurantEntity;
+import java.util.List;
+
+/**
+ * Strategy used by {@link RestaurantRepositoryServiceImpl} to fetch the restaurants around a
+ * location from the database. Selected with the {@code qeats.nearby.strategy} property.
+ */
+public interface NearbyRestaurantsFinder {
+
+  /**
+   * Get the restaurants that may lie within the given radius.
+   *   - The result can contain restaurants slightly outside the radius; callers still check the
+   *     exact distance and the opening hours.
+   * @param latitude coordinates near which we have to search for restaurant
+   * @param longitude coordinates near which we have to search for restaurant
+   * @param radiusInKms search radius
+   * @return candidate restaurants or empty list if there is none
+   */
+  List<RestaurantEntity> findRestaurantsNear(double latitude, double longitude,
+      double radiusInKms);
+
+  /**
+   * Get every restaurant that may lie within the given radius, however many there are.
+   *   - Used to fill the nearby cache, whose entries serve every lookup around them, so unlike
+   *     {@link #findRestaurantsNear} the result must not be capped.
+   * @param latitude coordinates near which we have to search for restaurant
+   * @param longitude coordinates near which we have to search for restaurant
+   * @param radiusInKms search radius
+   * @return candidate restaurants or empty list if there is none
+   */
+  default List<RestaurantEntity> findAllRestaurantsNear(double latitude, double longitude,
+      double radiusInKms) {
+    return findRestaurantsNear(latitude, longitude, radiusInKms);
+  }
+
+  /**
+   * Whether lookups should go through the nearby cache before this finder.
+   */
+  default boolean isCacheable() {
+    return true;
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.configs.RedisCircuitBreaker;
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.index.RedisGeoIndex;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.models.RestaurantEntity;
+import java.util.List;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * Redis path: looks the restaurants up in the {@link RedisGeoIndex}, nearest first.
+ * Falls back to the in-memory {@link RestaurantGeoIndex} while the Redis index is not loaded,
+ * or Redis is down.
+ */
+@Component
+@ConditionalOnProperty(name = "qeats.nearby.strategy", havingValue = "redis")
+@Log4j2
+public class RedisGeoNearbyRestaurantsFinder implements NearbyRestaurantsFinder {
+
+  // Closed restaurants are only filtered out afterwards, so more than a page is fetched.
+  static final int MAX_RESULTS = 1000;
+
+  @Autowired
+  private transient RedisGeoIndex redisGeoIndex;
+
+  @Autowired
+  private transient RestaurantGeoIndex restaurantGeoIndex;
+
+  @Autowired
+  private transient RedisConfiguration redisConfiguration;
+
+  @Autowired
+  private transient RedisCircuitBreaker redisCircuitBreaker;
+
+  @Override
+  public List<RestaurantEntity> findRestaurantsNear(double latitude, double longitude,
+      double radiusInKms) {
+    if (redisGeoIndex.isLoaded() && redisConfiguration.isCacheAvailable()) {
+      try {
+        List<RestaurantEntity> restaurantEntities =
+            redisGeoIndex.findWithin(latitude, longitude, radiusInKms, MAX_RESULTS);
+        redisCircuitBreaker.recordSuccess();
+        return restaurantEntities;
+      } catch (JedisConnectionException e) {
+        log.warn("Could not read the Redis geo index", e);
+        redisCircuitBreaker.recordFailure();
+      } catch (Exception e) {
+        log.warn("Could not read the Redis geo index", e);
+      }
+    }
+    return restaurantGeoIndex.findWithin(latitude, longitude, radiusInKms);
+  }
+
+  // The Redis lookups are capped at MAX_RESULTS; the in-memory index is not.
+  @Override
+  public List<RestaurantEntity> findAllRestaurantsNear(double latitude, double longitude,
+      double radiusInKms) {
+    return restaurantGeoIndex.findWithin(latitude, longitude, radiusInKms);
+  }
+
+  // Redis already answers every lookup, the nearby cache would only add a round trip.
+  @Override
+  public boolean isCacheable() {
+    return false;
+  }
+}
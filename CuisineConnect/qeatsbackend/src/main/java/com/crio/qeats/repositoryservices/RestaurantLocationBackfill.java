@@ -0,0 +1,80 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import com.crio.qeats.models.RestaurantEntity;
+import lombok.extern.log4j.Log4j2;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeospatialIndex;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills in the GeoJSON location of restaurants written before the field existed, and makes sure
+ * the 2dsphere index is there. Runs once at startup when the geo-query path is selected.
+ */
+@Component
+@Log4j2
+@ConditionalOnProperty(name = "qeats.nearby.strategy", havingValue = "geo")
+public class RestaurantLocationBackfill {
+
+  private static final int BATCH_SIZE = 1000;
+
+  @Autowired
+  private transient MongoTemplate mongoTemplate;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfill() {
+    mongoTemplate.indexOps(RestaurantEntity.class)
+        .ensureIndex(new GeospatialIndex("location").typed(GeoSpatialIndexType.GEO_2DSPHERE));
+
+    Query query = new Query(Criteria.where("location").exists(false)
+        .and("latitude").ne(null).and("longitude").ne(null));
+    query.fields().include("latitude").include("longitude");
+
+    String collection = mongoTemplate.getCollectionName(RestaurantEntity.class);
+    BulkOperations bulkOperations = null;
+    int pending = 0;
+    int updated = 0;
+    try (CloseableIterator<Document> documents =
+        mongoTemplate.stream(query, Document.class, collection)) {
+      while (documents.hasNext()) {
+        Document document = documents.next();
+        if (bulkOperations == null) {
+          bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+        }
+        GeoJsonPoint location = new GeoJsonPoint(
+            ((Number) document.get("longitude")).doubleValue(),
+            ((Number) document.get("latitude")).doubleValue());
+        bulkOperations.updateOne(new Query(Criteria.where("_id").is(document.get("_id"))),
+            Update.update("location", location));
+        if (++pending == BATCH_SIZE) {
+          bulkOperations.execute();
+          updated += pending;
+          bulkOperations = null;
+          pending = 0;
+        }
+      }
+    }
+    if (pending > 0) {
+      bulkOperations.execute();
+      updated += pending;
+    }
+    log.info("Backfilled the location of {} restaurants", updated);
+  }
+}
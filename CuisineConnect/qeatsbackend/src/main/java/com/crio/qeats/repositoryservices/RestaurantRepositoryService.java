@@ -28,6 +28,14 @@ public interface RestaurantRepositoryService {
   List<Restaurant> findAllRestaurantsCloseBy(Double latitude, Double longitude,
       LocalTime currentTime, Double servingRadiusInKms);
 
+  /**
+   * Get the nearest open restaurants within the specified serving radius, closest first.
+   * @param limit maximum number of restaurants to return
+   * @return at most limit open restaurants within the specified radius, ordered by distance
+   */
+  List<Restaurant> findAllRestaurantsCloseBy(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms, int limit);
+
 
   /**
    * Get the list of open restaurants within the specified serving radius.
@@ -65,6 +73,16 @@ public interface RestaurantRepositoryService {
   List<Restaurant> findRestaurantsByItemAttributes(Double latitude, Double longitude,
       String searchString, LocalTime currentTime, Double servingRadiusInKms);
 
+  /**
+   * Whether none of the four searches above can match the query around the given point, at any
+   * time and from anywhere in the area its negative search cache entry covers.
+   *   - Only known right after the searches ran; false when in doubt.
+   * @param searchString the query the searches ran with
+   * @return true if no restaurant matched the query before the time and position were applied
+   */
+  boolean hasNoSearchCandidates(Double latitude, Double longitude, String searchString,
+      Double servingRadiusInKms);
+
   /**
    * Get the list of open restaurants within the specified serving radius.
    * @param searchString Query string for item attributes
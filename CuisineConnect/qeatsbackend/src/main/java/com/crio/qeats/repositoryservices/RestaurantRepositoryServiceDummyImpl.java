@@ -39,6 +39,14 @@ public class RestaurantRepositoryServiceDummyImpl implements RestaurantRepositor
     return restaurantList;
   }
 
+  @Override
+  public List<Restaurant> findAllRestaurantsCloseBy(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms, int limit) {
+    List<Restaurant> restaurantList = findAllRestaurantsCloseBy(latitude, longitude, currentTime,
+        servingRadiusInKms);
+    return restaurantList.subList(0, Math.min(limit, restaurantList.size()));
+  }
+
   public List<Restaurant> findRestaurantsByName(Double latitude, Double longitude,
       String searchString, LocalTime currentTime, Double servingRadiusInKms) {
     return null;
@@ -59,6 +67,11 @@ public class RestaurantRepositoryServiceDummyImpl implements RestaurantRepositor
     return null;
   }
 
+  public boolean hasNoSearchCandidates(Double latitude, Double longitude, String searchString,
+      Double servingRadiusInKms) {
+    return false;
+  }
+
   @Override
   public Future<List<Restaurant>> findRestaurantsByAttributesUsingMultithreading(Double latitude,
       Double longitude, String searchString, LocalTime currentTime, Double servingRadiusInKms) {
@@ -7,31 +7,51 @@
 package com.crio.qeats.repositoryservices;
 
 import ch.hsr.geohash.GeoHash;
+import ch.hsr.geohash.WGS84Point;
+import com.crio.qeats.cache.LocalNearbyCache;
+import com.crio.qeats.cache.MappedNearbyCache;
+import com.crio.qeats.cache.NearbyCacheCodecs;
+import com.crio.qeats.cache.NearbyCacheLayout;
+import com.crio.qeats.cache.NearbyCacheLoader;
+import com.crio.qeats.cache.NegativeCache;
+import com.crio.qeats.cache.SearchResultCache;
+import com.crio.qeats.configs.MongoRoundTrips;
+import com.crio.qeats.configs.QeatsMetrics;
+import com.crio.qeats.configs.QeatsMetrics.Stage;
+import com.crio.qeats.configs.RedisCircuitBreaker;
 import com.crio.qeats.configs.RedisConfiguration;
 import com.crio.qeats.dto.Restaurant;
 import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.index.RestaurantSearchIndex;
+import com.crio.qeats.mappers.RestaurantMapper;
 import com.crio.qeats.models.ItemEntity;
 import com.crio.qeats.models.MenuEntity;
 import com.crio.qeats.models.RestaurantEntity;
 import com.crio.qeats.repositories.ItemRepository;
 import com.crio.qeats.repositories.MenuRepository;
 import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.utils.BoundedTopK;
+import com.crio.qeats.utils.GeoHashUtils;
 import com.crio.qeats.utils.GeoUtils;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import javax.inject.Provider;
-import org.modelmapper.ModelMapper; 
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired; 
 import org.springframework.data.mongodb.core.MongoTemplate; 
 import org.springframework.data.mongodb.core.query.Criteria; 
@@ -42,14 +62,20 @@ import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Service; 
 import redis.clients.jedis.Jedis; 
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.util.SafeEncoder;
 
 
 @Service
 @EnableAsync
+@Log4j2
 public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryService {
 
+  private static final List<String> SEARCH_SOURCES =
+      Arrays.asList("name", "attributes", "itemName", "itemAttributes");
+
   @Autowired
-  private transient Provider<ModelMapper> modelMapperProvider;
+  private transient RestaurantMapper restaurantMapper;
 
   @Autowired
   private transient RestaurantRepository restaurantRepository;
@@ -64,17 +90,52 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
   private transient RedisConfiguration redisConfiguration;
 
   @Autowired
-  private transient ObjectMapper objectMapper;
+  private transient RedisCircuitBreaker redisCircuitBreaker;
 
   @Autowired
   private transient MongoTemplate mongoTemplate;
 
+  @Autowired
+  private transient NearbyRestaurantsFinder nearbyRestaurantsFinder;
 
-  private boolean isOpenNow(LocalTime time, RestaurantEntity res) {
-    LocalTime openingTime = LocalTime.parse(res.getOpensAt());
-    LocalTime closingTime = LocalTime.parse(res.getClosesAt());
+  @Autowired
+  private transient NearbyCacheLayout nearbyCacheLayout;
+
+  @Autowired
+  private transient LocalNearbyCache localNearbyCache;
+
+  @Autowired
+  private transient NearbyCacheCodecs nearbyCacheCodecs;
+
+  @Autowired
+  private transient NearbyCacheLoader nearbyCacheLoader;
+
+  // Only present with qeats.cache.nearby.backend=mapped, in place of Redis.
+  @Autowired(required = false)
+  private transient MappedNearbyCache mappedNearbyCache;
+
+  @Autowired
+  private transient NegativeCache negativeCache;
+
+  @Autowired
+  private transient RestaurantGeoIndex restaurantGeoIndex;
+
+  // Only present with qeats.search.strategy=index, in place of the regex queries.
+  @Autowired(required = false)
+  private transient RestaurantSearchIndex restaurantSearchIndex;
+
+  @Autowired
+  private transient SearchResultCache searchResultCache;
+
+  @Autowired
+  private transient MongoRoundTrips mongoRoundTrips;
 
-    return time.isAfter(openingTime) && time.isBefore(closingTime);
+  @Autowired
+  private transient QeatsMetrics qeatsMetrics;
+
+
+  private boolean isOpenNow(LocalTime time, RestaurantEntity res) {
+    return res.getOpeningHours().isOpenAt(time);
   }
 
   // TODO: CRIO_TASK_MODULE_NOSQL
@@ -100,72 +161,139 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
     // that part is sorted here
     // If it is available then search in the redis cache
     // If the cache is not available then search in mongo repository
-    if (redisConfiguration.isCacheAvailable()) {
-      return findAllRestaurantsCloseByFromRedisCache(latitude, longitude, currentTime,
-          servingRadiusInKms);
-    } else {
-      return findAllRestaurantsCloseByMongo(latitude, longitude, currentTime, servingRadiusInKms);
+    return findAllRestaurantsCloseBy(latitude, longitude, currentTime, servingRadiusInKms,
+        GlobalConstants.MAX_RESTAURANTS_PER_SEARCH);
+  }
+
+  @Override
+  public List<Restaurant> findAllRestaurantsCloseBy(Double latitude, Double longitude,
+      LocalTime currentTime, Double servingRadiusInKms, int limit) {
+    try (MongoRoundTrips.Scope roundTrips = mongoRoundTrips.begin("findAllRestaurantsCloseBy")) {
+      if (nearbyRestaurantsFinder.isCacheable()
+          && nearbyCacheLayout.supportsRadius(servingRadiusInKms)) {
+        List<RestaurantEntity> cellCandidates = qeatsMetrics.stage(Stage.CACHE, QeatsMetrics.NEARBY)
+            .record(() -> findCellCandidatesInCache(latitude, longitude, servingRadiusInKms));
+        if (cellCandidates != null) {
+          // The cache entries do not depend on the time or the radius of the request;
+          // both are applied here, on every request.
+          return findNearestOpenRestaurants(QeatsMetrics.NEARBY, cellCandidates, currentTime,
+              latitude, longitude, servingRadiusInKms, limit);
+        }
+      }
+      return findAllRestaurantsCloseByMongo(latitude, longitude, currentTime, servingRadiusInKms,
+          limit);
     }
   }
 
   private List<Restaurant> findAllRestaurantsCloseByMongo(Double latitude, Double longitude,
-      LocalTime currentTime, Double servingRadiusInKms) {
-    List<RestaurantEntity> resataurantEntityList = restaurantRepository.findAll();
-
-    List<Restaurant> restaurants = resataurantEntityList.stream()
-        .filter(restaurantEntity -> isRestaurantCloseByAndOpen(restaurantEntity, currentTime,
-            latitude, longitude, servingRadiusInKms))
-        .limit(100)
-        .map(restaurantEntity -> modelMapperProvider.get().map(restaurantEntity, Restaurant.class))
-        .collect(Collectors.toList());
-    return restaurants;
+      LocalTime currentTime, Double servingRadiusInKms, int limit) {
+    // Only the restaurants around the user are fetched; see qeats.nearby.strategy.
+    List<RestaurantEntity> resataurantEntityList = qeatsMetrics
+        .stage(Stage.MONGO, QeatsMetrics.NEARBY)
+        .record(() -> nearbyRestaurantsFinder.findRestaurantsNear(latitude, longitude,
+            servingRadiusInKms));
+
+    return findNearestOpenRestaurants(QeatsMetrics.NEARBY, resataurantEntityList, currentTime,
+        latitude, longitude, servingRadiusInKms, limit);
   }
 
-  private List<Restaurant> findAllRestaurantsCloseByFromRedisCache(Double latitude,
-      Double longitude, LocalTime currentTime, Double servingRadiusInKms) {
-    // Generate GeoHash with standard preciosion value that is 7
-    GeoHash geoHash = generateGeoHash(latitude, longitude);
+  // Candidates of every cache entry needed for this lookup, from the local cache first and
+  // from Redis, or the mapped file, for the rest; null if some entries are missing locally and
+  // Redis is down, or its circuit is open.
+  private List<RestaurantEntity> findCellCandidatesInCache(Double latitude, Double longitude,
+      Double servingRadiusInKms) {
+    // Keys of every cache entry needed for this lookup; see qeats.cache.nearby.layout.
+    List<String> keys = nearbyCacheLayout.keysFor(latitude, longitude, servingRadiusInKms);
+
+    List<RestaurantEntity> cellCandidates = new ArrayList<>();
+    List<String> missingKeys = new ArrayList<>();
+    for (String key : keys) {
+      List<RestaurantEntity> cached = localNearbyCache.getIfPresent(key);
+      if (cached != null) {
+        if (cached.isEmpty()) {
+          negativeCache.recordNearbyHit();
+        }
+        cellCandidates.addAll(cached);
+      } else {
+        missingKeys.add(key);
+      }
+    }
+
+    if (!missingKeys.isEmpty() && mappedNearbyCache != null) {
+      cellCandidates.addAll(findCellCandidatesInMappedFile(missingKeys, latitude, longitude,
+          servingRadiusInKms));
+    } else if (!missingKeys.isEmpty()) {
+      if (!redisConfiguration.isCacheAvailable()) {
+        return null;
+      }
+      try {
+        cellCandidates.addAll(findCellCandidatesInRedis(missingKeys, latitude, longitude,
+            servingRadiusInKms));
+        redisCircuitBreaker.recordSuccess();
+      } catch (JedisConnectionException e) {
+        log.warn("Redis is not reachable, falling back to mongo", e);
+        redisCircuitBreaker.recordFailure();
+        return null;
+      }
+    }
+    return cellCandidates;
+  }
 
+  private List<RestaurantEntity> findCellCandidatesInRedis(List<String> keys, Double latitude,
+      Double longitude, Double servingRadiusInKms) {
     // Get the JedisPool
     JedisPool jedisPool = redisConfiguration.getJedisPool();
 
-    // create a list of restaurant to be returned
-    List<Restaurant> restaurants = new ArrayList<>();
+    List<RestaurantEntity> cellCandidates = new ArrayList<>();
+    int misses = 0;
 
     // create a Jedis reference
     Jedis jedis = null;
     try {
       // Get the Jedis Object
       jedis = jedisPool.getResource();
-      // Get the data from redis cache
-      String cacheString = jedis.get(geoHash.toBase32());
-
-      if (cacheString != null) {
-        // Convert the Cache to List<Restaurant> using objectMapper
-        List<RestaurantEntity> resataurantEntityList =
-            objectMapper.readValue(cacheString, new TypeReference<List<RestaurantEntity>>() {});
-
-        // filter restaurant based on open or close currently
-        // and within the serving radius or not
-        restaurants = resataurantEntityList.stream()
-            .filter(restaurantEntity -> isRestaurantCloseByAndOpen(restaurantEntity, currentTime,
-                latitude, longitude, servingRadiusInKms))
-            .limit(100).map(restaurantEntity -> modelMapperProvider.get().map(restaurantEntity,
-                Restaurant.class))
-            .collect(Collectors.toList());
-      } else {
-        restaurants =
-            findAllRestaurantsCloseByMongo(latitude, longitude, currentTime, servingRadiusInKms);
-        String createStringToStore = "";
-        try {
-          createStringToStore = objectMapper.writeValueAsString(restaurants);
-        } catch (JsonProcessingException e) {
-          e.printStackTrace();
+      // Get all the entries, and when they are due for a refresh, from redis cache in one
+      // round trip
+      byte[][] binaryKeys = new byte[keys.size() * 2][];
+      for (int i = 0; i < keys.size(); i++) {
+        binaryKeys[i] = SafeEncoder.encode(redisConfiguration.cacheKey(keys.get(i)));
+        binaryKeys[keys.size() + i] = SafeEncoder.encode(
+            redisConfiguration.cacheKey(NearbyCacheLoader.refreshInfoKey(keys.get(i))));
+      }
+      List<byte[]> cacheEntries = jedis.mget(binaryKeys);
+
+      for (int i = 0; i < keys.size(); i++) {
+        byte[] cacheEntry = cacheEntries.get(i);
+        List<RestaurantEntity> entry = null;
+        if (cacheEntry != null) {
+          nearbyCacheLoader.refreshIfDue(keys.get(i), cacheEntries.get(keys.size() + i));
+          if (!localNearbyCache.admit(keys.get(i))) {
+            // Not worth caching here yet: only the restaurants within the radius are decoded.
+            List<RestaurantEntity> within = nearbyCacheCodecs.decodeWithin(cacheEntry, latitude,
+                longitude, servingRadiusInKms);
+            if (within != null) {
+              cellCandidates.addAll(within);
+              continue;
+            }
+          } else {
+            entry = nearbyCacheCodecs.decode(cacheEntry);
+            if (entry != null && entry.isEmpty()) {
+              negativeCache.recordNearbyHit();
+            }
+          }
+        }
+        // Entries of an unknown format decode to null and are replaced like missing ones.
+        if (entry == null) {
+          misses++;
+          // Concurrent misses of the key, here or on other instances, share a single load.
+          entry = nearbyCacheLoader.load(jedis, keys.get(i));
         }
-        // set the redis cache with the expiration time
-        jedis.setex(geoHash.toBase32(), GlobalConstants.REDIS_ENTRY_EXPIRY_IN_SECONDS,
-            createStringToStore);
+        localNearbyCache.put(keys.get(i), entry);
+        cellCandidates.addAll(entry);
       }
+    } catch (JedisConnectionException e) {
+      // Redis is down or too slow; the caller falls back to mongo.
+      throw e;
     } catch (Exception e) {
       throw new RuntimeException("Can not access redis cache", e);
     } finally {
@@ -174,6 +302,85 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
       }
     }
 
+    localNearbyCache.recordRedisLookups(keys.size() - misses, misses);
+    return cellCandidates;
+  }
+
+  // Same as findCellCandidatesInRedis, reading the memory-mapped file of this node instead.
+  private List<RestaurantEntity> findCellCandidatesInMappedFile(List<String> keys,
+      Double latitude, Double longitude, Double servingRadiusInKms) {
+    List<RestaurantEntity> cellCandidates = new ArrayList<>();
+    int misses = 0;
+    try {
+      for (String key : keys) {
+        byte[] cacheEntry = mappedNearbyCache.get(key);
+        List<RestaurantEntity> entry = null;
+        if (cacheEntry != null) {
+          if (!localNearbyCache.admit(key)) {
+            List<RestaurantEntity> within = nearbyCacheCodecs.decodeWithin(cacheEntry, latitude,
+                longitude, servingRadiusInKms);
+            if (within != null) {
+              cellCandidates.addAll(within);
+              continue;
+            }
+          } else {
+            entry = nearbyCacheCodecs.decode(cacheEntry);
+            if (entry != null && entry.isEmpty()) {
+              negativeCache.recordNearbyHit();
+            }
+          }
+        }
+        if (entry == null) {
+          misses++;
+          entry = mappedNearbyCache.load(key);
+        }
+        localNearbyCache.put(key, entry);
+        cellCandidates.addAll(entry);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Can not access the mapped nearby cache", e);
+    }
+
+    mappedNearbyCache.recordLookups(keys.size() - misses, misses);
+    return cellCandidates;
+  }
+
+  /**
+   * Get the open restaurants within the serving radius, closest first.
+   * Only the nearest limit restaurants are kept while scanning, so the candidates are neither
+   * sorted nor all mapped.
+   * @param operation what the restaurants are for, see {@link QeatsMetrics}
+   */
+  private List<Restaurant> findNearestOpenRestaurants(String operation,
+      List<RestaurantEntity> restaurantEntityList, LocalTime currentTime, Double latitude,
+      Double longitude, Double servingRadiusInKms, int limit) {
+    qeatsMetrics.recordCandidates(operation, restaurantEntityList.size());
+    Timer.Sample filter = qeatsMetrics.start();
+    BoundedTopK<NearbyRestaurantEntity> nearest =
+        new BoundedTopK<>(limit, NearbyRestaurantEntity.NEAREST_FIRST);
+    for (RestaurantEntity restaurantEntity : restaurantEntityList) {
+      if (!isOpenNow(currentTime, restaurantEntity)) {
+        continue;
+      }
+      double distanceInKm = GeoUtils.findDistanceInKm(latitude, longitude,
+          restaurantEntity.getLatitude(), restaurantEntity.getLongitude());
+      if (distanceInKm < servingRadiusInKms) {
+        nearest.offer(new NearbyRestaurantEntity(restaurantEntity, distanceInKm));
+      }
+    }
+    List<NearbyRestaurantEntity> nearestFirst = nearest.toSortedList();
+    filter.stop(qeatsMetrics.stage(Stage.FILTER, operation));
+
+    Timer.Sample mapping = qeatsMetrics.start();
+    List<Restaurant> restaurants = new ArrayList<>();
+    for (NearbyRestaurantEntity nearbyRestaurantEntity : nearestFirst) {
+      Restaurant restaurant =
+          restaurantMapper.toRestaurant(nearbyRestaurantEntity.restaurantEntity);
+      restaurant.setDistanceInKm(nearbyRestaurantEntity.distanceInKm);
+      restaurants.add(restaurant);
+    }
+    mapping.stop(qeatsMetrics.stage(Stage.MAPPING, operation));
+    qeatsMetrics.recordResults(operation, restaurants.size());
     return restaurants;
   }
 
@@ -198,39 +405,64 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
   @Override
   public List<Restaurant> findRestaurantsByName(Double latitude, Double longitude,
       String searchString, LocalTime currentTime, Double servingRadiusInKms) {
-    Optional<List<RestaurantEntity>> restaurantEntityListExact =
-        restaurantRepository.findRestaurantsByNameExact(searchString);
-
-    Optional<List<RestaurantEntity>> restaurantEntityListInexact =
-        restaurantRepository.findRestaurantByName(searchString);
-
-    // We have to take care of teh duplicate also
-    Set<String> restaurantIdSet = new HashSet<>();
-    List<Restaurant> restaurants = new ArrayList<>();
-
-    if (restaurantEntityListExact.isPresent()) {
-      for (RestaurantEntity restaurantEntity : restaurantEntityListExact.get()) {
+    Timer.Sample sample = qeatsMetrics.start();
+    try (MongoRoundTrips.Scope roundTrips = mongoRoundTrips.begin("findRestaurantsByName")) {
+      List<RestaurantEntity> restaurantEntityList = findSearchCandidates("name", latitude,
+          longitude, searchString, servingRadiusInKms, this::findRestaurantCandidatesByName);
+      qeatsMetrics.recordCandidates("name", restaurantEntityList.size());
+
+      // Exact matches first, in the order they were found.
+      Timer.Sample filter = qeatsMetrics.start();
+      Set<String> restaurantIdSet = new HashSet<>();
+      List<RestaurantEntity> matches = new ArrayList<>();
+      for (RestaurantEntity restaurantEntity : restaurantEntityList) {
         if (isRestaurantCloseByAndOpen(restaurantEntity, currentTime, latitude, longitude,
             servingRadiusInKms) && !restaurantIdSet.contains(restaurantEntity.getId())
-            && restaurants.size() < 100) {
-          restaurants.add(modelMapperProvider.get().map(restaurantEntity, Restaurant.class));
+            && matches.size() < GlobalConstants.MAX_RESTAURANTS_PER_SEARCH) {
+          matches.add(restaurantEntity);
           restaurantIdSet.add(restaurantEntity.getId());
         }
       }
-    }
+      filter.stop(qeatsMetrics.stage(Stage.FILTER, "name"));
 
-    if (restaurantEntityListInexact.isPresent()) {
-      for (RestaurantEntity restaurantEntity : restaurantEntityListInexact.get()) {
-        if (isRestaurantCloseByAndOpen(restaurantEntity, currentTime, latitude, longitude,
-            servingRadiusInKms) && !restaurantIdSet.contains(restaurantEntity.getId())
-            && restaurants.size() < 100) {
-          restaurants.add(modelMapperProvider.get().map(restaurantEntity, Restaurant.class));
-          restaurantIdSet.add(restaurantEntity.getId());
-        }
+      Timer.Sample mapping = qeatsMetrics.start();
+      List<Restaurant> restaurants = new ArrayList<>();
+      for (RestaurantEntity restaurantEntity : matches) {
+        restaurants.add(restaurantMapper.toRestaurant(restaurantEntity));
       }
+      mapping.stop(qeatsMetrics.stage(Stage.MAPPING, "name"));
+      qeatsMetrics.recordResults("name", restaurants.size());
+      return restaurants;
+    } finally {
+      sample.stop(qeatsMetrics.searchSource("name"));
     }
+  }
 
-    return restaurants;
+  private List<RestaurantEntity> findRestaurantCandidatesByName(String searchString,
+      double latitude, double longitude, double radiusInKms) {
+    if (restaurantSearchIndex != null) {
+      String normalizedQuery = SearchResultCache.normalizeQuery(searchString);
+      List<RestaurantEntity> restaurantEntityList = findIndexedRestaurantsAround(
+          restaurantSearchIndex.findRestaurantIdsByName(searchString), latitude, longitude,
+          radiusInKms);
+      // Exact matches first, like the queries below; the sort is stable.
+      restaurantEntityList.sort(Comparator.comparing(restaurantEntity ->
+          restaurantEntity.getName() == null
+              || !normalizedQuery.equals(SearchResultCache.normalizeQuery(
+                  restaurantEntity.getName()))));
+      return restaurantEntityList;
+    }
+
+    Optional<List<RestaurantEntity>> restaurantEntityListExact =
+        restaurantRepository.findRestaurantsByNameExact(searchString);
+
+    Optional<List<RestaurantEntity>> restaurantEntityListInexact =
+        restaurantRepository.findRestaurantByName(searchString);
+
+    List<RestaurantEntity> restaurantEntityList = new ArrayList<>();
+    restaurantEntityListExact.ifPresent(restaurantEntityList::addAll);
+    restaurantEntityListInexact.ifPresent(restaurantEntityList::addAll);
+    return restaurantEntityList;
   }
 
 
@@ -240,6 +472,26 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
   @Override
   public List<Restaurant> findRestaurantsByAttributes(Double latitude, Double longitude,
       String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    Timer.Sample sample = qeatsMetrics.start();
+    try (MongoRoundTrips.Scope roundTrips = mongoRoundTrips.begin("findRestaurantsByAttributes")) {
+      List<RestaurantEntity> restaurantEntityList = findSearchCandidates("attributes", latitude,
+          longitude, searchString, servingRadiusInKms, this::findRestaurantCandidatesByAttributes);
+
+      return findNearestOpenRestaurants("attributes", restaurantEntityList, currentTime, latitude,
+          longitude, servingRadiusInKms, GlobalConstants.MAX_RESTAURANTS_PER_SEARCH);
+    } finally {
+      sample.stop(qeatsMetrics.searchSource("attributes"));
+    }
+  }
+
+  private List<RestaurantEntity> findRestaurantCandidatesByAttributes(String searchString,
+      double latitude, double longitude, double radiusInKms) {
+    if (restaurantSearchIndex != null) {
+      return findIndexedRestaurantsAround(
+          restaurantSearchIndex.findRestaurantIdsByAttributes(searchString), latitude, longitude,
+          radiusInKms);
+    }
+
     // find the restaurant by their attributes
     // we have create one method in the restorant repositiry
     // then call it directly and filter
@@ -254,18 +506,7 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
     for (Pattern pattern : patterns) {
       queryForTheAttribute.addCriteria(Criteria.where("attributes").regex(pattern));
     }
-    List<RestaurantEntity> restaurantEntityList =
-        mongoTemplate.find(queryForTheAttribute, RestaurantEntity.class);
-
-
-    List<Restaurant> restaurants = restaurantEntityList.stream()
-        .filter(restaurantEntity -> isRestaurantCloseByAndOpen(restaurantEntity, currentTime,
-            latitude, longitude, servingRadiusInKms))
-        .limit(100)
-        .map(restaurantEntity -> modelMapperProvider.get().map(restaurantEntity, Restaurant.class))
-        .collect(Collectors.toList());
-
-    return restaurants;
+    return mongoTemplate.find(queryForTheAttribute, RestaurantEntity.class);
 
     // these is the another implemetion which uses -> @Query Anotation
     // Optional<List<RestaurantEntity>> optionalrestaurantEntityList =
@@ -299,6 +540,25 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
   @Override
   public List<Restaurant> findRestaurantsByItemName(Double latitude, Double longitude,
       String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    Timer.Sample sample = qeatsMetrics.start();
+    try (MongoRoundTrips.Scope roundTrips = mongoRoundTrips.begin("findRestaurantsByItemName")) {
+      List<RestaurantEntity> restaurantEntityList = findSearchCandidates("itemName", latitude,
+          longitude, searchString, servingRadiusInKms, this::findRestaurantCandidatesByItemName);
+
+      return findNearestOpenRestaurants("itemName", restaurantEntityList, currentTime, latitude,
+          longitude, servingRadiusInKms, GlobalConstants.MAX_RESTAURANTS_PER_SEARCH);
+    } finally {
+      sample.stop(qeatsMetrics.searchSource("itemName"));
+    }
+  }
+
+  private List<RestaurantEntity> findRestaurantCandidatesByItemName(String searchString,
+      double latitude, double longitude, double radiusInKms) {
+    if (restaurantSearchIndex != null) {
+      return findIndexedRestaurantsAround(
+          restaurantSearchIndex.findRestaurantIdsByItemName(searchString), latitude, longitude,
+          radiusInKms);
+    }
 
     // Form a regex for partial search
     String regex = String.join("|", Arrays.asList(searchString.split(" ")));
@@ -317,8 +577,7 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
     itemIds
         .addAll(itemEntitiesInexact.stream().map(ItemEntity::getId).collect(Collectors.toList()));
 
-    return getRestaurantListFromItemList(latitude, longitude, currentTime, servingRadiusInKms,
-        itemIds);
+    return getRestaurantListFromItemList(latitude, longitude, radiusInKms, itemIds);
   }
 
   // TODO: CRIO_TASK_MODULE_RESTAURANTSEARCH
@@ -327,6 +586,46 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
   @Override
   public List<Restaurant> findRestaurantsByItemAttributes(Double latitude, Double longitude,
       String searchString, LocalTime currentTime, Double servingRadiusInKms) {
+    Timer.Sample sample = qeatsMetrics.start();
+    try (MongoRoundTrips.Scope roundTrips =
+        mongoRoundTrips.begin("findRestaurantsByItemAttributes")) {
+      List<RestaurantEntity> restaurantEntityList = findSearchCandidates("itemAttributes",
+          latitude, longitude, searchString, servingRadiusInKms,
+          this::findRestaurantCandidatesByItemAttributes);
+
+      return findNearestOpenRestaurants("itemAttributes", restaurantEntityList, currentTime,
+          latitude, longitude, servingRadiusInKms, GlobalConstants.MAX_RESTAURANTS_PER_SEARCH);
+    } finally {
+      sample.stop(qeatsMetrics.searchSource("itemAttributes"));
+    }
+  }
+
+  // The candidates of the four sources are cached per coarse cell, before the time and the
+  // position of the user are applied, so empty entries hold for every search from that cell.
+  @Override
+  public boolean hasNoSearchCandidates(Double latitude, Double longitude, String searchString,
+      Double servingRadiusInKms) {
+    if (!searchResultCache.supportsRadius(servingRadiusInKms)) {
+      return false;
+    }
+    String normalizedQuery = SearchResultCache.normalizeQuery(searchString);
+    String cell = SearchResultCache.cellOf(latitude, longitude);
+    for (String source : SEARCH_SOURCES) {
+      if (!searchResultCache.isCachedEmpty(SearchResultCache.key(source, cell, normalizedQuery))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private List<RestaurantEntity> findRestaurantCandidatesByItemAttributes(String searchString,
+      double latitude, double longitude, double radiusInKms) {
+    if (restaurantSearchIndex != null) {
+      return findIndexedRestaurantsAround(
+          restaurantSearchIndex.findRestaurantIdsByItemAttributes(searchString), latitude,
+          longitude, radiusInKms);
+    }
+
     // search the item by attributes
     // then collect the ids
     // then search the menuList
@@ -351,38 +650,127 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
     List<String> itemIds =
         itemEntities.stream().map(ItemEntity::getId).collect(Collectors.toList());
 
-    return getRestaurantListFromItemList(latitude, longitude, currentTime, servingRadiusInKms,
-        itemIds);
+    return getRestaurantListFromItemList(latitude, longitude, radiusInKms, itemIds);
+  }
+
+  // Restaurants of the given ids in the geohash cells covering the circle, taken from the
+  // in-memory geo index instead of mongo.
+  private List<RestaurantEntity> findIndexedRestaurantsAround(Set<String> restaurantIds,
+      double latitude, double longitude, double radiusInKms) {
+    if (restaurantIds.isEmpty()) {
+      return new ArrayList<>();
+    }
+    return restaurantGeoIndex.findCandidates(latitude, longitude, radiusInKms).stream()
+        .filter(restaurantEntity -> restaurantIds.contains(restaurantEntity.getId()))
+        .collect(Collectors.toList());
   }
 
-  // Get Restaurant List From item Entity List
-  private List<Restaurant> getRestaurantListFromItemList(Double latitude, Double longitude,
-      LocalTime currentTime, Double servingRadiusInKms, List<String> itemIds) {
+  // Get the restaurants serving any of the items, within the bounding box of the circle
+  private List<RestaurantEntity> getRestaurantListFromItemList(double latitude,
+      double longitude, double radiusInKms, List<String> itemIds) {
+    if (itemIds.isEmpty()) {
+      return new ArrayList<>();
+    }
+
     // Now get the List of Menus with the help of itemIds
     Optional<List<MenuEntity>> menuEntityList = menuRepository.findMenusByItemsItemIdIn(itemIds);
-    List<MenuEntity> menuEntityList2 = menuEntityList.get();
 
-    // Get List Of Restaurant Ids From MenuEnityList
-    List<String> restaurantsIds =
-        menuEntityList2.stream().map(MenuEntity::getRestaurantId).collect(Collectors.toList());
+    // Get the distinct Restaurant Ids From MenuEnityList
+    Set<String> restaurantsIds = new LinkedHashSet<>();
+    for (MenuEntity menuEntity : menuEntityList.orElse(Collections.emptyList())) {
+      restaurantsIds.add(menuEntity.getRestaurantId());
+    }
+    if (restaurantsIds.isEmpty()) {
+      return new ArrayList<>();
+    }
 
-    // From List Of Restaurants ids -> find the List of RestaurantEntity
-    List<RestaurantEntity> restaurantEntityList = new ArrayList<>();
+    // Fetch all of them in one query, skipping the ones outside the serving radius box
+    Query query = new Query(Criteria.where("_id").in(restaurantsIds));
+    addBoundingBoxCriteria(query, latitude, longitude, radiusInKms);
+    return mongoTemplate.find(query, RestaurantEntity.class);
+  }
+
+  // Loads the restaurants a search source matches for a query, around a circle; restaurants
+  // outside of it may be returned too.
+  private interface SearchCandidatesLoader {
+    List<RestaurantEntity> load(String searchString, double latitude, double longitude,
+        double radiusInKms);
+  }
+
+  /**
+   * Get the restaurants a search source matches for a query, that may be within the serving
+   * radius, before the time and the radius are applied.
+   * They are loaded around the coarse cell of the user and cached by it, so later searches of
+   * the query from the cell only look the cached ids up.
+   */
+  private List<RestaurantEntity> findSearchCandidates(String source, Double latitude,
+      Double longitude, String searchString, Double servingRadiusInKms,
+      SearchCandidatesLoader loader) {
+    if (!searchResultCache.supportsRadius(servingRadiusInKms)) {
+      return qeatsMetrics.stage(Stage.MONGO, source).record(
+          () -> loader.load(searchString, latitude, longitude, servingRadiusInKms));
+    }
 
-    for (String restaurantId : restaurantsIds) {
-      restaurantEntityList.add(restaurantRepository.findById(restaurantId).get());
+    String normalizedQuery = SearchResultCache.normalizeQuery(searchString);
+    String cell = SearchResultCache.cellOf(latitude, longitude);
+    String key = SearchResultCache.key(source, cell, normalizedQuery);
+    List<String> restaurantIds =
+        qeatsMetrics.stage(Stage.CACHE, source).record(() -> searchResultCache.getIfPresent(key));
+    if (restaurantIds != null) {
+      return findRestaurantEntitiesById(source, restaurantIds, latitude, longitude,
+          servingRadiusInKms);
     }
 
-    // Filter the List Of RestaurantentityList and map to Restaurant class
-    List<Restaurant> restaurants = restaurantEntityList.stream()
-        .filter(restaurantEntity -> isRestaurantCloseByAndOpen(restaurantEntity, currentTime,
-            latitude, longitude, servingRadiusInKms))
-        .limit(100)
-        .map(restaurantEntity -> modelMapperProvider.get().map(restaurantEntity, Restaurant.class))
+    // Every restaurant within the largest serving radius of some point of the cell.
+    WGS84Point centre = GeoHash.fromGeohashString(cell).getBoundingBoxCenterPoint();
+    double radiusInKms =
+        GlobalConstants.MAX_SERVING_RADIUS_IN_KMS + GeoHashUtils.cellRadiusInKms(cell);
+    List<RestaurantEntity> restaurantEntityList = qeatsMetrics.stage(Stage.MONGO, source)
+        .record(() -> loader.load(normalizedQuery, centre.getLatitude(), centre.getLongitude(),
+            radiusInKms))
+        .stream()
+        .filter(restaurantEntity -> GeoUtils.findDistanceInKm(centre.getLatitude(),
+            centre.getLongitude(), restaurantEntity.getLatitude(),
+            restaurantEntity.getLongitude()) <= radiusInKms)
         .collect(Collectors.toList());
 
+    searchResultCache.put(key, restaurantEntityList.stream()
+        .map(RestaurantEntity::getId)
+        .collect(Collectors.toList()));
+    return restaurantEntityList;
+  }
 
-    return restaurants;
+  // Restaurants of the given ids around the user, in the order of the ids. They are taken from
+  // the nearby cache when it can serve the radius, or fetched from mongo in one query.
+  private List<RestaurantEntity> findRestaurantEntitiesById(String source,
+      List<String> restaurantIds, Double latitude, Double longitude, Double servingRadiusInKms) {
+    List<RestaurantEntity> restaurantEntityList = null;
+    if (!restaurantIds.isEmpty() && nearbyCacheLayout.supportsRadius(servingRadiusInKms)) {
+      restaurantEntityList = qeatsMetrics.stage(Stage.CACHE, source)
+          .record(() -> findCellCandidatesInCache(latitude, longitude, servingRadiusInKms));
+    }
+    if (restaurantEntityList == null) {
+      if (restaurantIds.isEmpty()) {
+        return new ArrayList<>();
+      }
+      Query query = new Query(Criteria.where("_id").in(restaurantIds));
+      addBoundingBoxCriteria(query, latitude, longitude, servingRadiusInKms);
+      restaurantEntityList = qeatsMetrics.stage(Stage.MONGO, source)
+          .record(() -> mongoTemplate.find(query, RestaurantEntity.class));
+    }
+
+    Map<String, RestaurantEntity> restaurantEntitiesById = new HashMap<>();
+    for (RestaurantEntity restaurantEntity : restaurantEntityList) {
+      restaurantEntitiesById.putIfAbsent(restaurantEntity.getId(), restaurantEntity);
+    }
+    List<RestaurantEntity> restaurantEntities = new ArrayList<>();
+    for (String restaurantId : restaurantIds) {
+      RestaurantEntity restaurantEntity = restaurantEntitiesById.get(restaurantId);
+      if (restaurantEntity != null) {
+        restaurantEntities.add(restaurantEntity);
+      }
+    }
+    return restaurantEntities;
   }
   
   @Override
@@ -423,6 +811,26 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
     return new AsyncResult<List<Restaurant>>(restaurants);
   } 
 
+  /**
+   * Restricts the query to restaurants within the lat/lon bounding box of the serving circle.
+   * The longitude is left open when the box would wrap around the poles or the antimeridian.
+   */
+  private void addBoundingBoxCriteria(Query query, Double latitude, Double longitude,
+      Double servingRadiusInKms) {
+    double latitudeDelta = servingRadiusInKms / GeoUtils.KM_PER_DEGREE_OF_LATITUDE;
+    query.addCriteria(Criteria.where("latitude")
+        .gte(latitude - latitudeDelta).lte(latitude + latitudeDelta));
+
+    double widestLatitude = Math.abs(latitude) + latitudeDelta;
+    if (widestLatitude < 90.0) {
+      double longitudeDelta = latitudeDelta / Math.cos(Math.toRadians(widestLatitude));
+      if (longitude - longitudeDelta >= -180.0 && longitude + longitudeDelta <= 180.0) {
+        query.addCriteria(Criteria.where("longitude")
+            .gte(longitude - longitudeDelta).lte(longitude + longitudeDelta));
+      }
+    }
+  }
+
   /**
    * Utility method to check if a restaurant is within the serving radius at a given time.
    * 
@@ -437,5 +845,21 @@ public class RestaurantRepositoryServiceImpl implements RestaurantRepositoryServ
     return false;
   }
 
-}
+  // A candidate with its distance from the user, computed once for the selection.
+  private static final class NearbyRestaurantEntity {
+
+    private static final Comparator<NearbyRestaurantEntity> NEAREST_FIRST =
+        Comparator.<NearbyRestaurantEntity>comparingDouble(nearby -> nearby.distanceInKm)
+            .thenComparing(nearby -> nearby.restaurantEntity.getRestaurantId(),
+                Comparator.nullsLast(Comparator.naturalOrder()));
 
+    private final RestaurantEntity restaurantEntity;
+    private final double distanceInKm;
+
+    private NearbyRestaurantEntity(RestaurantEntity restaurantEntity, double distanceInKm) {
+      this.restaurantEntity = restaurantEntity;
+      this.distanceInKm = distanceInKm;
+    }
+  }
+
+}
@@ -7,21 +7,31 @@
 
 package com.crio.qeats.services;
 
+import com.crio.qeats.cache.NegativeCache;
+import com.crio.qeats.configs.QeatsMetrics;
 import com.crio.qeats.dto.Restaurant;
 import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
 import com.crio.qeats.repositoryservices.RestaurantRepositoryService;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -33,6 +43,20 @@ public class RestaurantServiceImpl implements RestaurantService {
   @Autowired
   private transient RestaurantRepositoryService restaurantRepositoryService;
 
+  @Autowired
+  private transient NegativeCache negativeCache;
+
+  @Autowired
+  private transient QeatsMetrics qeatsMetrics;
+
+  @Autowired
+  @Qualifier("searchExecutor")
+  private transient Executor searchExecutor;
+
+  // Time a search waits for its sources before answering with the ones that finished.
+  @Value("${qeats.search.deadline-ms:1000}")
+  private transient long searchDeadlineMillis;
+
 
   @Override
   public GetRestaurantsResponse findAllRestaurantsCloseBy(
@@ -51,9 +75,16 @@ public class RestaurantServiceImpl implements RestaurantService {
       servingRadius = normalHoursServingRadiusInKms;
     }
 
-    List<Restaurant> restaurantsList =
-        restaurantRepositoryService.findAllRestaurantsCloseBy(getRestaurantsRequest.getLatitude(),
-            getRestaurantsRequest.getLongitude(), currentTime, servingRadius);
+    List<Restaurant> restaurantsList;
+    if (getRestaurantsRequest.getLimit() != null) {
+      restaurantsList = restaurantRepositoryService.findAllRestaurantsCloseBy(
+          getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(), currentTime,
+          servingRadius, getRestaurantsRequest.getLimit());
+    } else {
+      restaurantsList = restaurantRepositoryService.findAllRestaurantsCloseBy(
+          getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(), currentTime,
+          servingRadius);
+    }
     log.info(restaurantsList);
     return new GetRestaurantsResponse(restaurantsList);
   }
@@ -87,7 +118,10 @@ public class RestaurantServiceImpl implements RestaurantService {
       servingRadius = normalHoursServingRadiusInKms;
     }
 
-    if (getRestaurantsRequest.getSearchFor().length() != 0) {
+    String searchKey = NegativeCache.searchKey(getRestaurantsRequest.getLatitude(),
+        getRestaurantsRequest.getLongitude(), servingRadius, getRestaurantsRequest.getSearchFor());
+    if (getRestaurantsRequest.getSearchFor().length() != 0
+        && !negativeCache.hasNoSearchHits(searchKey)) {
       List<List<Restaurant>> fullListOfRestaurants = new ArrayList<>();
 
       fullListOfRestaurants.add(new ArrayList<>(restaurantRepositoryService
@@ -116,7 +150,14 @@ public class RestaurantServiceImpl implements RestaurantService {
           restaurants.add(restaurant);
         }
       }
+      // Closed or slightly too far restaurants may still be hits later, or a few meters away.
+      if (restaurants.isEmpty() && restaurantRepositoryService.hasNoSearchCandidates(
+          getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(),
+          getRestaurantsRequest.getSearchFor(), servingRadius)) {
+        negativeCache.recordNoSearchHits(searchKey);
+      }
     }
+    qeatsMetrics.recordResults(QeatsMetrics.SEARCH, restaurants.size());
 
     log.info(restaurants);
     return new GetRestaurantsResponse(restaurants);
@@ -143,71 +184,93 @@ public class RestaurantServiceImpl implements RestaurantService {
       servingRadius = normalHoursServingRadiusInKms;
     }
 
-    if (getRestaurantsRequest.getSearchFor().length() != 0) {
-      Set<String> restaurantsIds = new HashSet<>();
+    String searchFor = getRestaurantsRequest.getSearchFor();
+    String searchKey = searchFor == null ? null : NegativeCache.searchKey(
+        getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(), servingRadius,
+        searchFor);
+    if (searchFor != null && searchFor.length() != 0
+        && !negativeCache.hasNoSearchHits(searchKey)) {
+      Double latitude = getRestaurantsRequest.getLatitude();
+      Double longitude = getRestaurantsRequest.getLongitude();
+      Double radius = servingRadius;
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(searchDeadlineMillis);
+
+      // Started in the order of RestaurantService#findRestaurantsBySearchQuery, so merging
+      // them in this order keeps that ordering.
+      List<CompletableFuture<List<Restaurant>>> futures = Arrays.asList(
+          submit(() -> restaurantRepositoryService
+              .findRestaurantsByName(latitude, longitude, searchFor, currentTime, radius)),
+          submit(() -> restaurantRepositoryService
+              .findRestaurantsByAttributes(latitude, longitude, searchFor, currentTime, radius)),
+          submit(() -> restaurantRepositoryService
+              .findRestaurantsByItemName(latitude, longitude, searchFor, currentTime, radius)),
+          submit(() -> restaurantRepositoryService
+              .findRestaurantsByItemAttributes(latitude, longitude, searchFor, currentTime,
+                  radius)));
 
-      Future<List<Restaurant>> futureResaturantByNameList = restaurantRepositoryService
-            .findRestaurantByNameUsingMultithreading(
-            getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(),
-            getRestaurantsRequest.getSearchFor(), currentTime, servingRadius);
-
-      Future<List<Restaurant>> futureResaturantByAttributesList = restaurantRepositoryService
-            .findRestaurantsByAttributesUsingMultithreading(
-            getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(),
-            getRestaurantsRequest.getSearchFor(), currentTime, servingRadius);
-
-
-      Future<List<Restaurant>> futureResaturantByItemNameList = restaurantRepositoryService
-            .findRestaurantsByItemNameUsingMultithreading(
-            getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(),
-            getRestaurantsRequest.getSearchFor(), currentTime, servingRadius);
-
-
-      Future<List<Restaurant>> futureResaturantByItemAttributesList = restaurantRepositoryService
-            .findRestaurantsByItemAttributesUsingMultithreading(
-            getRestaurantsRequest.getLatitude(), getRestaurantsRequest.getLongitude(),
-            getRestaurantsRequest.getSearchFor(), currentTime, servingRadius);
-
-      
-      // Extract List of Resturants From Future Object 
-      List<Restaurant> restaurantByNameList = new ArrayList<>();
-      List<Restaurant> restaurantByAttributesList = new ArrayList<>();
-      List<Restaurant> restaurantByItemNameList = new ArrayList<>();
-      List<Restaurant> restaurantByItemAttributesList = new ArrayList<>(); 
-      try {
-        restaurantByNameList = (futureResaturantByNameList.isDone())
-          ? futureResaturantByNameList.get() : null;
-        restaurantByAttributesList = (futureResaturantByAttributesList.isDone())
-             ? futureResaturantByAttributesList.get() : null;
-        restaurantByItemNameList = (futureResaturantByItemNameList.isDone())
-          ? futureResaturantByItemNameList.get() : null;
-        restaurantByItemAttributesList =
-          (futureResaturantByItemAttributesList.isDone())
-          ? futureResaturantByItemAttributesList.get() : null;
-      } catch (InterruptedException | ExecutionException e) {
-        e.printStackTrace();
+      Set<String> restaurantsIds = new HashSet<>();
+      boolean complete = true;
+      for (CompletableFuture<List<Restaurant>> future : futures) {
+        List<Restaurant> sourceRestaurants = awaitUntil(future, deadline);
+        if (sourceRestaurants == null) {
+          complete = false;
+        } else {
+          addRestaurants(restaurants, sourceRestaurants, restaurantsIds);
+        }
+      }
+      // Partial results prove nothing about the sources that did not answer, and closed or
+      // slightly too far restaurants may still be hits later, or a few meters away.
+      if (complete && restaurants.isEmpty() && restaurantRepositoryService
+          .hasNoSearchCandidates(latitude, longitude, searchFor, radius)) {
+        negativeCache.recordNoSearchHits(searchKey);
       }
-      
-
-      // Iterate over each of them and add the restaurant if it is not null and 
-      // and not already added to final list( means not present in the set 
-
-      addRestaurants(restaurants, restaurantByNameList, restaurantsIds);
-      addRestaurants(restaurants, restaurantByAttributesList, restaurantsIds);
-      addRestaurants(restaurants, restaurantByItemNameList, restaurantsIds);
-      addRestaurants(restaurants, restaurantByItemAttributesList, restaurantsIds);
-
-
     }
+    qeatsMetrics.recordResults(QeatsMetrics.SEARCH, restaurants.size());
 
     log.info(restaurants);
     return new GetRestaurantsResponse(restaurants);
   }
 
+  // Runs one search source on the search executor; a source the saturated executor rejects
+  // fails like any other, and is left out of the results.
+  private CompletableFuture<List<Restaurant>> submit(Supplier<List<Restaurant>> source) {
+    try {
+      return CompletableFuture.supplyAsync(source, searchExecutor);
+    } catch (RejectedExecutionException e) {
+      CompletableFuture<List<Restaurant>> rejected = new CompletableFuture<>();
+      rejected.completeExceptionally(e);
+      return rejected;
+    }
+  }
+
+  // Result of one search source, or null if it failed or missed the deadline. A source past
+  // the deadline keeps its pool thread until it returns: a CompletableFuture cannot interrupt
+  // the task behind it.
+  private List<Restaurant> awaitUntil(CompletableFuture<List<Restaurant>> future,
+      long deadline) {
+    try {
+      long remaining = Math.max(0, deadline - System.nanoTime());
+      List<Restaurant> restaurants = future.get(remaining, TimeUnit.NANOSECONDS);
+      return restaurants != null ? restaurants : new ArrayList<>();
+    } catch (TimeoutException e) {
+      log.warn("Search source missed the deadline of {} ms, returning partial results",
+          searchDeadlineMillis);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RejectedExecutionException) {
+        log.warn("Search executor saturated, returning partial results");
+      } else {
+        log.error("Search source failed", e.getCause());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return null;
+  }
+
   private void addRestaurants(List<Restaurant> restaurants,List<Restaurant> restaurantToBeAdded,
       Set<String> restaurantsIds) {
     for (Restaurant restaurant:restaurantToBeAdded) {
-      if (!restaurantsIds.contains(restaurant.getRestaurantId()) && restaurant != null) {
+      if (restaurant != null && !restaurantsIds.contains(restaurant.getRestaurantId())) {
         restaurants.add(restaurant);
         restaurantsIds.add(restaurant.getRestaurantId());
       }
@@ -0,0 +1,59 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the k smallest elements offered to it, in O(log k) per element, without holding or
+ * sorting all of them.
+ */
+public class BoundedTopK<T> {
+
+  private final int limit;
+  private final Comparator<? super T> comparator;
+  // Largest kept element on top, so it is the one evicted by a smaller element.
+  private final PriorityQueue<T> heap;
+
+  /**
+   * Creates a selection of at most limit elements, ordered by the comparator.
+   */
+  public BoundedTopK(int limit, Comparator<? super T> comparator) {
+    if (limit < 0) {
+      throw new IllegalArgumentException("limit must not be negative: " + limit);
+    }
+    this.limit = limit;
+    this.comparator = comparator;
+    this.heap = new PriorityQueue<>(Math.max(1, Math.min(limit, 128)),
+        Collections.reverseOrder(comparator));
+  }
+
+  /**
+   * Offers an element; it is kept only if it is among the k smallest seen so far.
+   */
+  public void offer(T element) {
+    if (heap.size() < limit) {
+      heap.add(element);
+    } else if (limit > 0 && comparator.compare(element, heap.peek()) < 0) {
+      heap.poll();
+      heap.add(element);
+    }
+  }
+
+  /**
+   * The kept elements, smallest first.
+   */
+  public List<T> toSortedList() {
+    List<T> elements = new ArrayList<>(heap);
+    elements.sort(comparator);
+    return elements;
+  }
+}
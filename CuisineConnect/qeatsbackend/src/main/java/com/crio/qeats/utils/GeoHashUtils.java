@@ -0,0 +1,131 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import ch.hsr.geohash.BoundingBox;
+import ch.hsr.geohash.GeoHash;
+import ch.hsr.geohash.WGS84Point;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Helpers to work with geohash cells of a fixed character precision.
+ */
+public class GeoHashUtils {
+
+  private GeoHashUtils() { /* singleton */ }
+
+  /**
+   * Height of a geohash cell of the given character precision, in degrees of latitude.
+   */
+  public static double cellLatitudeSpan(int precision) {
+    int latitudeBits = (precision * 5) / 2;
+    return 180.0 / (1L << latitudeBits);
+  }
+
+  /**
+   * Width of a geohash cell of the given character precision, in degrees of longitude.
+   */
+  public static double cellLongitudeSpan(int precision) {
+    int longitudeBits = precision * 5 - (precision * 5) / 2;
+    return 360.0 / (1L << longitudeBits);
+  }
+
+  /**
+   * Picks the finest precision, up to maxPrecision, whose cells near the given latitude are at
+   * least half the radius high and wide, so a circle of that radius is covered by at most
+   * 5 x 5 cells.
+   */
+  public static int coverPrecision(double latitude, double radiusInKms, int maxPrecision) {
+    double cosLatitude = Math.cos(Math.toRadians(Math.min(89.0, Math.abs(latitude))));
+    for (int precision = maxPrecision; precision > 1; precision--) {
+      double heightInKms = cellLatitudeSpan(precision) * GeoUtils.KM_PER_DEGREE_OF_LATITUDE;
+      double widthInKms =
+          cellLongitudeSpan(precision) * GeoUtils.KM_PER_DEGREE_OF_LATITUDE * cosLatitude;
+      if (Math.min(heightInKms, widthInKms) * 2 >= radiusInKms) {
+        return precision;
+      }
+    }
+    return 1;
+  }
+
+  /**
+   * Base32 geohash of the cell containing the given point.
+   */
+  public static String cellOf(double latitude, double longitude, int precision) {
+    return GeoHash.withCharacterPrecision(latitude, longitude, precision).toBase32();
+  }
+
+  /**
+   * Finds every geohash cell of the given precision that intersects the bounding box of the
+   * circle around (latitude, longitude).
+   *
+   * @param latitude centre of the circle
+   * @param longitude centre of the circle
+   * @param radiusInKms radius of the circle
+   * @param precision geohash character precision of the returned cells
+   * @return base32 geohashes of the covering cells, without duplicates
+   */
+  public static List<String> coveringCells(double latitude, double longitude,
+      double radiusInKms, int precision) {
+    double latitudeDelta = radiusInKms / GeoUtils.KM_PER_DEGREE_OF_LATITUDE;
+    double minLatitude = Math.max(-90.0, latitude - latitudeDelta);
+    double maxLatitude = Math.min(90.0, latitude + latitudeDelta);
+
+    // The box is widest at the edge furthest from the equator.
+    double widestLatitude = Math.max(Math.abs(minLatitude), Math.abs(maxLatitude));
+    double cosLatitude = Math.cos(Math.toRadians(widestLatitude));
+    double longitudeDelta = cosLatitude < 1e-6 ? 180.0
+        : Math.min(180.0, latitudeDelta / cosLatitude);
+    double minLongitude = longitude - longitudeDelta;
+    double maxLongitude = longitude + longitudeDelta;
+
+    double latitudeStep = cellLatitudeSpan(precision);
+    double longitudeStep = cellLongitudeSpan(precision);
+
+    // Sampling one point per cell height/width never skips a row or column of cells.
+    Set<String> cells = new LinkedHashSet<>();
+    for (double lat = minLatitude; ; lat = Math.min(lat + latitudeStep, maxLatitude)) {
+      for (double lon = minLongitude; ; lon = Math.min(lon + longitudeStep, maxLongitude)) {
+        cells.add(cellOf(lat, normalizeLongitude(lon), precision));
+        if (lon >= maxLongitude) {
+          break;
+        }
+      }
+      if (lat >= maxLatitude) {
+        break;
+      }
+    }
+    return new ArrayList<>(cells);
+  }
+
+  /**
+   * Largest distance from the centre of the cell to any point of it, in kms.
+   */
+  public static double cellRadiusInKms(String cell) {
+    GeoHash geoHash = GeoHash.fromGeohashString(cell);
+    WGS84Point centre = geoHash.getBoundingBoxCenterPoint();
+    BoundingBox boundingBox = geoHash.getBoundingBox();
+    // The corners on the side nearer the equator are the furthest from the centre.
+    double latitude = Math.abs(boundingBox.getMinLat()) < Math.abs(boundingBox.getMaxLat())
+        ? boundingBox.getMinLat() : boundingBox.getMaxLat();
+    return GeoUtils.findDistanceInKm(centre.getLatitude(), centre.getLongitude(), latitude,
+        boundingBox.getMaxLon());
+  }
+
+  private static double normalizeLongitude(double longitude) {
+    if (longitude < -180.0) {
+      return longitude + 360.0;
+    }
+    if (longitude > 180.0) {
+      return longitude - 360.0;
+    }
+    return longitude;
+  }
+}
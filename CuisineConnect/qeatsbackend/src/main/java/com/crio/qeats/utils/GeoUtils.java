@@ -7,6 +7,7 @@
 
 package com.crio.qeats.utils;
 
+import java.util.Arrays;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -14,11 +15,99 @@ import lombok.Data;
 @AllArgsConstructor
 public class GeoUtils {
 
+  private static final double EARTH_RADIUS_IN_KMS = 6371;
+
+  // Slightly under the 111.2 km of a degree on the sphere of findDistanceInKm, so bounding
+  // boxes and covering cells derived from it always contain the whole circle.
+  public static final double KM_PER_DEGREE_OF_LATITUDE = 110.5;
+
+  // Largest radius for which the equirectangular approximation is trusted, and how far from
+  // the radius its result has to be to decide without the exact haversine distance.
+  private static final double APPROXIMATION_MAX_RADIUS_IN_KMS = 100;
+  private static final double APPROXIMATION_MARGIN = 0.01;
+  private static final double APPROXIMATION_MAX_LATITUDE = 80;
+
   public static double findDistanceInKm(double srcLatitude, double srcLongitude,
       double dstLatitude, double dstLongitude) {
     return distance(srcLatitude, dstLatitude, srcLongitude, dstLongitude, 0, 0);
   }
 
+  /**
+   * Precomputes cos(latitude) of every point, for {@link #findIndicesWithinKm}.
+   */
+  public static double[] cosLatitudes(double[] latitudes) {
+    double[] cosLatitudes = new double[latitudes.length];
+    for (int i = 0; i < latitudes.length; i++) {
+      cosLatitudes[i] = Math.cos(Math.toRadians(latitudes[i]));
+    }
+    return cosLatitudes;
+  }
+
+  /**
+   * Finds the points strictly closer than radiusInKms to (latitude, longitude), with the same
+   * result as calling {@link #findDistanceInKm} on every point.
+   * Points outside the bounding box of the circle are rejected first; the rest are decided by
+   * an equirectangular approximation, and only the ones close to the boundary by haversine.
+   *
+   * @param latitude latitude of the query point
+   * @param longitude longitude of the query point
+   * @param radiusInKms search radius
+   * @param latitudes latitudes of the points
+   * @param longitudes longitudes of the points
+   * @param cosLatitudes cos of the latitudes of the points, see {@link #cosLatitudes}
+   * @return indices of the matching points, in increasing order
+   */
+  public static int[] findIndicesWithinKm(double latitude, double longitude, double radiusInKms,
+      double[] latitudes, double[] longitudes, double[] cosLatitudes) {
+    double angularRadius = radiusInKms / EARTH_RADIUS_IN_KMS;
+    double latitudeDelta = Math.toDegrees(angularRadius);
+    double cosLatitude = Math.cos(Math.toRadians(latitude));
+    // Largest longitude difference of a point within the radius, or no limit near the poles.
+    double sinRatio = Math.sin(Math.min(angularRadius, Math.PI / 2)) / cosLatitude;
+    double longitudeDelta = sinRatio >= 1 || angularRadius >= Math.PI / 2 ? 180
+        : Math.toDegrees(Math.asin(sinRatio));
+    boolean approximate = radiusInKms <= APPROXIMATION_MAX_RADIUS_IN_KMS
+        && Math.abs(latitude) + latitudeDelta < APPROXIMATION_MAX_LATITUDE;
+    double innerSquared = Math.pow(radiusInKms * (1 - APPROXIMATION_MARGIN), 2);
+    double outerSquared = Math.pow(radiusInKms * (1 + APPROXIMATION_MARGIN), 2);
+
+    int[] matches = new int[latitudes.length];
+    int count = 0;
+    for (int i = 0; i < latitudes.length; i++) {
+      double latitudeDifference = latitudes[i] - latitude;
+      if (latitudeDifference > latitudeDelta || latitudeDifference < -latitudeDelta) {
+        continue;
+      }
+      double longitudeDifference = longitudes[i] - longitude;
+      if (longitudeDifference > 180) {
+        longitudeDifference -= 360;
+      } else if (longitudeDifference < -180) {
+        longitudeDifference += 360;
+      }
+      if (longitudeDifference > longitudeDelta || longitudeDifference < -longitudeDelta) {
+        continue;
+      }
+
+      if (approximate) {
+        double x = Math.toRadians(longitudeDifference) * (cosLatitude + cosLatitudes[i]) / 2
+            * EARTH_RADIUS_IN_KMS;
+        double y = Math.toRadians(latitudeDifference) * EARTH_RADIUS_IN_KMS;
+        double distanceSquared = x * x + y * y;
+        if (distanceSquared < innerSquared) {
+          matches[count++] = i;
+          continue;
+        }
+        if (distanceSquared > outerSquared) {
+          continue;
+        }
+      }
+      if (findDistanceInKm(latitude, longitude, latitudes[i], longitudes[i]) < radiusInKms) {
+        matches[count++] = i;
+      }
+    }
+    return Arrays.copyOf(matches, count);
+  }
+
   /**
    * THIS IS BORROWED CODE. Calculate distance between two points in latitude and longitude taking
    * into account height difference. If you are not interested in height difference pass 0.0. Uses
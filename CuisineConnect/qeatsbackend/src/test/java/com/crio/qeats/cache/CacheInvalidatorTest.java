@@ -0,0 +1,109 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.configs.RedisConfiguration;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidatorTest {
+
+  // Keys of the current cache generation, see RedisConfiguration#cacheKey.
+  private static final String GENERATION = "g7:";
+
+  @InjectMocks
+  private CacheInvalidator cacheInvalidator;
+
+  @Mock
+  private RedisConfiguration redisConfiguration;
+
+  @Mock
+  private NearbyCacheLayout nearbyCacheLayout;
+
+  @Mock
+  private LocalNearbyCache localNearbyCache;
+
+  @Mock
+  private SearchResultCache searchResultCache;
+
+  @Mock
+  private NegativeCache negativeCache;
+
+  @Mock
+  private JedisPool jedisPool;
+
+  @Mock
+  private Jedis jedis;
+
+  @Mock
+  private Pipeline pipeline;
+
+  @BeforeEach
+  void setup() {
+    lenient().when(redisConfiguration.cacheKey(anyString()))
+        .thenAnswer(invocation -> GENERATION + invocation.getArgument(0));
+  }
+
+  @Test
+  void restaurantChangesOnlyDropTheEntriesAroundIt() {
+    List<String> keys = Arrays.asList("tepg5bj", "tepg5bk");
+    when(nearbyCacheLayout.keysContaining(20.0, 30.0)).thenReturn(keys);
+    when(redisConfiguration.getJedisPool()).thenReturn(jedisPool);
+    when(jedisPool.getResource()).thenReturn(jedis);
+    when(jedis.pipelined()).thenReturn(pipeline);
+
+    cacheInvalidator.invalidateRestaurantAt(20.0, 30.0);
+
+    verify(localNearbyCache).invalidate(keys);
+    verify(pipeline).del(GENERATION + "tepg5bj",
+        GENERATION + NearbyCacheLoader.refreshInfoKey("tepg5bj"), GENERATION + "tepg5bk",
+        GENERATION + NearbyCacheLoader.refreshInfoKey("tepg5bk"));
+    verify(searchResultCache).invalidateAround(20.0, 30.0);
+    verify(negativeCache).invalidateSearchesAround(20.0, 30.0);
+    verify(searchResultCache, never()).invalidateAll();
+  }
+
+  @Test
+  void localEntriesAreDroppedWhileRedisIsDown() {
+    List<String> keys = Arrays.asList("tepg5bj");
+    when(nearbyCacheLayout.keysContaining(20.0, 30.0)).thenReturn(keys);
+
+    cacheInvalidator.invalidateRestaurantAt(20.0, 30.0);
+
+    verify(localNearbyCache).invalidate(keys);
+    verify(searchResultCache).invalidateAround(20.0, 30.0);
+  }
+
+  @Test
+  void invalidateAllMovesToTheNextGeneration() {
+    when(redisConfiguration.getJedisPool()).thenReturn(jedisPool);
+
+    cacheInvalidator.invalidateAll();
+
+    verify(localNearbyCache).invalidateAll();
+    verify(searchResultCache).invalidateAll();
+    verify(negativeCache).invalidateAll();
+    verify(redisConfiguration).nextCacheGeneration();
+    verify(jedisPool, never()).getResource();
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositoryservices.NearbyRestaurantsFinder;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CoverCellCacheLayoutTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  @InjectMocks
+  private CoverCellCacheLayout coverCellCacheLayout;
+
+  @Mock
+  private NearbyRestaurantsFinder nearbyRestaurantsFinder;
+
+  private List<RestaurantEntity> restaurants;
+
+  @BeforeEach
+  void setup() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+    restaurants = new ObjectMapper().readValue(fixture,
+        new TypeReference<List<RestaurantEntity>>() {});
+  }
+
+  @Test
+  void usualServingRadiiShareTheSameCells() {
+    List<String> keysFor3Kms = coverCellCacheLayout.keysFor(20.0, 30.0, 3.0);
+    List<String> keysFor5Kms = coverCellCacheLayout.keysFor(20.0, 30.0, 5.0);
+
+    assertTrue(keysFor3Kms.size() <= 25);
+    assertTrue(keysFor5Kms.containsAll(keysFor3Kms));
+    assertEquals(keysFor3Kms.get(0).length(), keysFor5Kms.get(0).length());
+  }
+
+  @Test
+  void keysContainingIncludeEveryKeyALookupMayReadTheRestaurantFrom() {
+    List<String> keys = coverCellCacheLayout.keysContaining(20.001, 30.001);
+
+    for (double radiusInKms : new double[] {0.5, 3.0, 5.0, 50.0}) {
+      assertTrue(coverCellCacheLayout.keysFor(20.0, 30.0, radiusInKms).stream()
+          .anyMatch(keys::contains));
+    }
+  }
+
+  @Test
+  void everyRestaurantIsStoredInOneCellOnly() {
+    when(nearbyRestaurantsFinder.findAllRestaurantsNear(anyDouble(), anyDouble(), anyDouble()))
+        .thenReturn(restaurants);
+
+    List<String> restaurantIds = new ArrayList<>();
+    for (String key : coverCellCacheLayout.keysFor(20.0, 30.0, 5.0)) {
+      restaurantIds.addAll(coverCellCacheLayout.load(key).stream()
+          .map(RestaurantEntity::getRestaurantId).collect(Collectors.toList()));
+    }
+
+    assertEquals(Arrays.asList("10", "11", "12"),
+        restaurantIds.stream().sorted().collect(Collectors.toList()));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.models.RestaurantEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LocalNearbyCacheTest {
+
+  private MeterRegistry meterRegistry;
+  private LocalNearbyCache localNearbyCache;
+
+  @BeforeEach
+  void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    localNearbyCache = new LocalNearbyCache(meterRegistry, 100, 60);
+  }
+
+  @Test
+  void hitsAndMissesAreCountedPerTier() {
+    assertNull(localNearbyCache.getIfPresent("tepg5bj"));
+    localNearbyCache.recordRedisLookups(0, 1);
+    localNearbyCache.put("tepg5bj", new ArrayList<>(Arrays.asList(new RestaurantEntity())));
+
+    assertEquals(1, localNearbyCache.getIfPresent("tepg5bj").size());
+    localNearbyCache.recordRedisLookups(3, 0);
+
+    assertEquals(1.0, lookups("local", "hit"));
+    assertEquals(1.0, lookups("local", "miss"));
+    assertEquals(3.0, lookups("redis", "hit"));
+    assertEquals(1.0, lookups("redis", "miss"));
+  }
+
+  @Test
+  void writesAreCounted() {
+    localNearbyCache.put("tepg5bj", new ArrayList<>());
+
+    assertEquals(1.0, meterRegistry.get("qeats.cache.nearby.writes").tag("tier", "local")
+        .counter().count());
+  }
+
+  @Test
+  void cachedEntriesCannotBeModified() {
+    localNearbyCache.put("tepg5bj", new ArrayList<>());
+
+    List<RestaurantEntity> cached = localNearbyCache.getIfPresent("tepg5bj");
+    assertThrows(UnsupportedOperationException.class, () -> cached.add(new RestaurantEntity()));
+  }
+
+  @Test
+  void entriesAreAdmittedOnTheirSecondRead() {
+    assertFalse(localNearbyCache.admit("tepg5bj"));
+    assertFalse(localNearbyCache.admit("tepg5bm"));
+    assertTrue(localNearbyCache.admit("tepg5bj"));
+  }
+
+  @Test
+  void invalidateAllDropsEveryEntry() {
+    localNearbyCache.put("tepg5bj", new ArrayList<>());
+
+    localNearbyCache.invalidateAll();
+
+    assertNull(localNearbyCache.getIfPresent("tepg5bj"));
+  }
+
+  @Test
+  void invalidateEmptyOnlyDropsEmptyEntries() {
+    localNearbyCache.put("tepg5bj", new ArrayList<>());
+    localNearbyCache.put("tepg5bk", Arrays.asList(new RestaurantEntity()));
+    localNearbyCache.invalidateEmpty();
+
+    assertNull(localNearbyCache.getIfPresent("tepg5bj"));
+    assertEquals(1, localNearbyCache.getIfPresent("tepg5bk").size());
+  }
+
+  @Test
+  void ttlMustBeShorterThanTheRedisExpiry() {
+    assertThrows(IllegalArgumentException.class, () -> new LocalNearbyCache(meterRegistry, 100,
+        GlobalConstants.REDIS_ENTRY_EXPIRY_IN_SECONDS));
+  }
+
+  private double lookups(String tier, String result) {
+    return meterRegistry.get("qeats.cache.nearby.lookups")
+        .tag("tier", tier).tag("result", result).counter().count();
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MappedCellFileTest {
+
+  private static final long NOW = 1_000_000L;
+  private static final long LATER = NOW + 60_000L;
+
+  private Path path;
+  private MappedCellFile cellFile;
+
+  @BeforeEach
+  void setup() throws IOException {
+    path = Files.createTempFile("qeats_nearby_cache", ".bin");
+    cellFile = new MappedCellFile(path, 64, 1 << 16);
+  }
+
+  @AfterEach
+  void teardown() throws IOException {
+    cellFile.close();
+    Files.deleteIfExists(path);
+  }
+
+  @Test
+  void valuesAreReadBackUntilTheyExpire() {
+    cellFile.put("tepg5bj", bytes("first"), LATER, false, NOW);
+    cellFile.put("tepg5bj", bytes("second"), LATER, false, NOW);
+
+    assertArrayEquals(bytes("second"), cellFile.get("tepg5bj", NOW));
+    assertNull(cellFile.get("tepg5bj", LATER));
+    assertNull(cellFile.get("tepg5bk", NOW));
+  }
+
+  @Test
+  void entriesSurviveReopeningTheFile() throws IOException {
+    cellFile.put("tepg5bj", bytes("restaurants"), LATER, false, NOW);
+    cellFile.close();
+
+    cellFile = new MappedCellFile(path, 64, 1 << 16);
+
+    assertArrayEquals(bytes("restaurants"), cellFile.get("tepg5bj", NOW));
+  }
+
+  @Test
+  void filesOfAnotherLayoutAreCleared() throws IOException {
+    cellFile.put("tepg5bj", bytes("restaurants"), LATER, false, NOW);
+    cellFile.close();
+
+    cellFile = new MappedCellFile(path, 128, 1 << 16);
+
+    assertNull(cellFile.get("tepg5bj", NOW));
+  }
+
+  @Test
+  void tornRecordsReadAsMissing() throws IOException {
+    cellFile.put("tepg5bj", bytes("restaurants"), LATER, false, NOW);
+    cellFile.close();
+    // Flip the last byte of the value, at the end of the data region written so far.
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      long offset = 64 + 64 * 32 + 2 + "tepg5bj".length() + "restaurants".length() - 1;
+      file.seek(offset);
+      byte b = file.readByte();
+      file.seek(offset);
+      file.writeByte(b ^ 1);
+    }
+
+    cellFile = new MappedCellFile(path, 64, 1 << 16);
+
+    assertNull(cellFile.get("tepg5bj", NOW));
+  }
+
+  @Test
+  void invalidatedValuesAreMissing() {
+    cellFile.put("tepg5bj", bytes("restaurants"), LATER, false, NOW);
+    cellFile.put("tepg5bk", bytes(""), LATER, true, NOW);
+    cellFile.put("tepg5bm", bytes("restaurants"), LATER, false, NOW);
+
+    cellFile.invalidate("tepg5bj");
+    cellFile.invalidateEmptyEntries();
+
+    assertNull(cellFile.get("tepg5bj", NOW));
+    assertNull(cellFile.get("tepg5bk", NOW));
+    assertArrayEquals(bytes("restaurants"), cellFile.get("tepg5bm", NOW));
+
+    cellFile.invalidateAll();
+
+    assertNull(cellFile.get("tepg5bm", NOW));
+    assertEquals(0, cellFile.usedBytes());
+  }
+
+  @Test
+  void aFullFileStartsOver() {
+    byte[] value = new byte[1 << 14];
+    for (int i = 0; i < 3; i++) {
+      assertTrue(cellFile.put("cell" + i, value, LATER, false, NOW));
+    }
+
+    assertFalse(cellFile.put("cell3", value, LATER, false, NOW));
+
+    assertNull(cellFile.get("cell0", NOW));
+    assertArrayEquals(value, cellFile.get("cell3", NOW));
+  }
+
+  @Test
+  void moreKeysThanSlotsStartOver() {
+    // 48 of the 64 slots are used before the file is cleared.
+    for (int i = 0; i < 48; i++) {
+      assertTrue(cellFile.put("cell" + i, bytes("cell" + i), LATER, false, NOW));
+    }
+    for (int i = 0; i < 48; i++) {
+      assertArrayEquals(bytes("cell" + i), cellFile.get("cell" + i, NOW));
+    }
+
+    assertFalse(cellFile.put("cell48", bytes("cell48"), LATER, false, NOW));
+  }
+
+  @Test
+  void reloadedKeysKeepTheirSlot() {
+    for (int i = 0; i < 48; i++) {
+      cellFile.put("cell" + i, bytes("cell" + i), NOW, false, NOW - 1);
+    }
+
+    for (int i = 0; i < 48; i++) {
+      assertTrue(cellFile.put("cell" + i, bytes("cell" + i), LATER, false, NOW));
+    }
+    assertArrayEquals(bytes("cell47"), cellFile.get("cell47", NOW));
+  }
+
+  @Test
+  void readersDoNotBlockEachOther() throws Exception {
+    for (int i = 0; i < 32; i++) {
+      cellFile.put("cell" + i, bytes("cell" + i), LATER, false, NOW);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> readers = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        readers.add(executor.submit(() -> {
+          for (int round = 0; round < 1000; round++) {
+            String key = "cell" + (round % 32);
+            if (!new String(cellFile.get(key, NOW), StandardCharsets.UTF_8).equals(key)) {
+              return false;
+            }
+          }
+          return true;
+        }));
+      }
+      // Writes interleave with the reads.
+      for (int round = 0; round < 100; round++) {
+        cellFile.put("cell" + (round % 32), bytes("cell" + (round % 32)), LATER, false, NOW);
+      }
+      for (Future<Boolean> reader : readers) {
+        assertTrue(reader.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
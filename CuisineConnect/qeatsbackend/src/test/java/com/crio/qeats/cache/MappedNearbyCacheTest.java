@@ -0,0 +1,138 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.models.RestaurantEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class MappedNearbyCacheTest {
+
+  private static final String KEY = "tepg5bj";
+  private static final byte[] ENCODED = {1, 2, 3};
+
+  @InjectMocks
+  private MappedNearbyCache mappedNearbyCache;
+
+  @Mock
+  private NearbyCacheLayout nearbyCacheLayout;
+
+  @Mock
+  private NearbyCacheCodecs nearbyCacheCodecs;
+
+  @Mock
+  private NegativeCache negativeCache;
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private Path path;
+
+  @BeforeEach
+  void setup() throws IOException {
+    path = Files.createTempFile("qeats_nearby_cache", ".bin");
+    ReflectionTestUtils.setField(mappedNearbyCache, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(mappedNearbyCache, "path", path.toString());
+    ReflectionTestUtils.setField(mappedNearbyCache, "slots", 64);
+    ReflectionTestUtils.setField(mappedNearbyCache, "dataMegabytes", 1);
+    mappedNearbyCache.open();
+  }
+
+  @AfterEach
+  void teardown() throws IOException {
+    mappedNearbyCache.close();
+    Files.deleteIfExists(path);
+  }
+
+  @Test
+  void loadedEntriesAreStoredEncoded() throws IOException {
+    List<RestaurantEntity> restaurants = Arrays.asList(new RestaurantEntity());
+    when(nearbyCacheLayout.load(KEY)).thenReturn(restaurants);
+    when(nearbyCacheCodecs.encode(restaurants)).thenReturn(ENCODED);
+
+    assertEquals(restaurants, mappedNearbyCache.load(KEY));
+
+    assertArrayEquals(ENCODED, mappedNearbyCache.get(KEY));
+    assertEquals(1.0, meterRegistry.get("qeats.cache.nearby.writes").tag("tier", "mapped")
+        .counter().count());
+  }
+
+  @Test
+  void emptyEntriesAreDroppedWithTheNegativeCache() throws IOException {
+    when(nearbyCacheLayout.load(KEY)).thenReturn(Collections.emptyList());
+    when(nearbyCacheCodecs.encode(anyList())).thenReturn(ENCODED);
+    when(negativeCache.getTtlSeconds()).thenReturn(300);
+
+    mappedNearbyCache.load(KEY);
+    mappedNearbyCache.invalidateEmpty();
+
+    assertNull(mappedNearbyCache.get(KEY));
+    verify(negativeCache).recordEmptyNearbyEntry();
+  }
+
+  @Test
+  void requestsStopWaitingForAStuckLoader() throws Exception {
+    ReflectionTestUtils.setField(mappedNearbyCache, "waitMillis", 50L);
+    List<RestaurantEntity> restaurants = Arrays.asList(new RestaurantEntity());
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch unstuck = new CountDownLatch(1);
+    when(nearbyCacheLayout.load(KEY)).thenAnswer(invocation -> {
+      loading.countDown();
+      unstuck.await();
+      return restaurants;
+    }).thenReturn(restaurants);
+    when(nearbyCacheCodecs.encode(restaurants)).thenReturn(ENCODED);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<List<RestaurantEntity>> leader = executor.submit(() -> mappedNearbyCache.load(KEY));
+      loading.await();
+
+      assertEquals(restaurants, mappedNearbyCache.load(KEY));
+      unstuck.countDown();
+      assertEquals(restaurants, leader.get());
+    } finally {
+      unstuck.countDown();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void lookupsAreCountedWithTheOtherTiers() {
+    mappedNearbyCache.recordLookups(3, 1);
+
+    assertEquals(3.0, meterRegistry.get("qeats.cache.nearby.lookups").tag("tier", "mapped")
+        .tag("result", "hit").counter().count());
+    assertEquals(1.0, meterRegistry.get("qeats.cache.nearby.lookups").tag("tier", "mapped")
+        .tag("result", "miss").counter().count());
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.ThreadMXBean;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+// Run with ./gradlew :qeatsbackend:benchmark
+@Tag("benchmark")
+class NearbyCacheCodecBenchmarkTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+  // A busy cell of the candidate layout.
+  private static final int RESTAURANTS_PER_ENTRY = 200;
+  private static final int ROUNDS = 2000;
+
+  @Test
+  void compareCodecs() throws Exception {
+    ObjectMapper objectMapper = new Jackson2ObjectMapperBuilder().build();
+    List<NearbyCacheCodec> codecs = Arrays.asList(new JsonNearbyCacheCodec(objectMapper),
+        new SmileNearbyCacheCodec(new Jackson2ObjectMapperBuilder()));
+    List<RestaurantEntity> entry = entry(objectMapper);
+
+    for (NearbyCacheCodec codec : codecs) {
+      NearbyCacheCodecs nearbyCacheCodecs = new NearbyCacheCodecs(codecs, codec.name());
+      byte[] bytes = nearbyCacheCodecs.encode(entry);
+
+      System.out.printf("%-5s: %6d bytes per entry of %d restaurants%n", codec.name(),
+          bytes.length, RESTAURANTS_PER_ENTRY);
+      measure(codec.name() + " decode", () -> nearbyCacheCodecs.decode(bytes));
+      measure(codec.name() + " decode within 3 km",
+          () -> nearbyCacheCodecs.decodeWithin(bytes, 20.0, 30.0, 3.0));
+    }
+  }
+
+  // Prints the average time and allocated bytes of one decode, after as many warm-up decodes.
+  private static void measure(String label, Callable<List<RestaurantEntity>> decode)
+      throws Exception {
+    ThreadMXBean threadMxBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    int restaurants = 0;
+    for (int round = 0; round < ROUNDS; round++) {
+      restaurants = decode.call().size();
+    }
+
+    long allocatedBefore = threadMxBean.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    for (int round = 0; round < ROUNDS; round++) {
+      decode.call();
+    }
+    long micros = (System.nanoTime() - start) / ROUNDS / 1000;
+    long allocatedKbs =
+        (threadMxBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / ROUNDS / 1024;
+
+    System.out.printf("  %-26s %3d restaurants, %4d us, %4d KB allocated%n", label,
+        restaurants, micros, allocatedKbs);
+  }
+
+  private static List<RestaurantEntity> entry(ObjectMapper objectMapper) throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+    List<RestaurantEntity> fixtures = objectMapper.readValue(fixture,
+        new TypeReference<List<RestaurantEntity>>() {});
+
+    List<RestaurantEntity> restaurants = new ArrayList<>();
+    for (int i = 0; i < RESTAURANTS_PER_ENTRY; i++) {
+      RestaurantEntity restaurantEntity =
+          objectMapper.convertValue(fixtures.get(i % fixtures.size()), RestaurantEntity.class);
+      restaurantEntity.setId("5c9b5a2d0d4c4a0001" + String.format("%06d", i));
+      restaurantEntity.setRestaurantId(String.valueOf(i));
+      restaurants.add(restaurantEntity);
+    }
+    return restaurants;
+  }
+}
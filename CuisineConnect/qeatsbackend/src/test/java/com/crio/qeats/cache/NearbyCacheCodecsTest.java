@@ -0,0 +1,116 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.crio.qeats.utils.GeoUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+class NearbyCacheCodecsTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  private ObjectMapper objectMapper;
+  private List<NearbyCacheCodec> codecs;
+  private List<RestaurantEntity> restaurants;
+
+  @BeforeEach
+  void setup() throws IOException {
+    objectMapper = new Jackson2ObjectMapperBuilder().build();
+    codecs = Arrays.asList(new JsonNearbyCacheCodec(objectMapper),
+        new SmileNearbyCacheCodec(new Jackson2ObjectMapperBuilder()));
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+    restaurants = objectMapper.readValue(fixture,
+        new TypeReference<List<RestaurantEntity>>() {});
+  }
+
+  @Test
+  void everyCodecRoundTrips() throws IOException {
+    for (String codec : Arrays.asList("json", "smile")) {
+      NearbyCacheCodecs nearbyCacheCodecs = new NearbyCacheCodecs(codecs, codec);
+
+      assertEquals(restaurants, nearbyCacheCodecs.decode(nearbyCacheCodecs.encode(restaurants)));
+    }
+  }
+
+  @Test
+  void smileEntriesAreSmallerAndCarryTheirVersion() throws IOException {
+    byte[] json = new NearbyCacheCodecs(codecs, "json").encode(restaurants);
+    byte[] smile = new NearbyCacheCodecs(codecs, "smile").encode(restaurants);
+
+    assertEquals('[', json[0]);
+    assertEquals(0, smile[0]);
+    assertEquals(1, smile[1]);
+    assertEquals(true, smile.length < json.length);
+  }
+
+  @Test
+  void entriesWrittenBeforeCodecsAreStillRead() throws IOException {
+    byte[] legacy = objectMapper.writeValueAsString(restaurants).getBytes(StandardCharsets.UTF_8);
+
+    assertEquals(restaurants, new NearbyCacheCodecs(codecs, "smile").decode(legacy));
+  }
+
+  @Test
+  void decodeWithinOnlyKeepsRestaurantsInsideTheRadius() throws IOException {
+    List<RestaurantEntity> expected = restaurants.stream()
+        .filter(restaurantEntity -> GeoUtils.findDistanceInKm(20.0, 30.0,
+            restaurantEntity.getLatitude(), restaurantEntity.getLongitude()) < 3.0)
+        .collect(Collectors.toList());
+
+    for (String codec : Arrays.asList("json", "smile")) {
+      NearbyCacheCodecs nearbyCacheCodecs = new NearbyCacheCodecs(codecs, codec);
+      byte[] bytes = nearbyCacheCodecs.encode(restaurants);
+
+      List<RestaurantEntity> within = nearbyCacheCodecs.decodeWithin(bytes, 20.0, 30.0, 3.0);
+      assertEquals(2, within.size());
+      assertEquals(expected, within);
+    }
+  }
+
+  @Test
+  void decodeWithinReadsCoordinatesInAnyOrder() throws IOException {
+    byte[] legacy = FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json")
+        .getBytes(StandardCharsets.UTF_8);
+
+    List<String> restaurantIds = new NearbyCacheCodecs(codecs, "json")
+        .decodeWithin(legacy, 20.0, 30.0, 3.0).stream()
+        .map(RestaurantEntity::getRestaurantId)
+        .sorted()
+        .collect(Collectors.toList());
+
+    assertEquals(Arrays.asList("11", "12"), restaurantIds);
+  }
+
+  @Test
+  void entriesOfAnUnknownVersionAreMisses() throws IOException {
+    NearbyCacheCodecs nearbyCacheCodecs = new NearbyCacheCodecs(codecs, "smile");
+
+    assertNull(nearbyCacheCodecs.decode(new byte[] {0, 42, 1, 2}));
+    assertNull(nearbyCacheCodecs.decodeWithin(new byte[] {0, 42, 1, 2}, 20.0, 30.0, 3.0));
+  }
+
+  @Test
+  void unknownCodecIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new NearbyCacheCodecs(codecs, "xml"));
+  }
+}
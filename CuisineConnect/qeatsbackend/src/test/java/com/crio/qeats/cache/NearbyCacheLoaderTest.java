@@ -0,0 +1,197 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.models.RestaurantEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.util.SafeEncoder;
+
+@ExtendWith(MockitoExtension.class)
+class NearbyCacheLoaderTest {
+
+  private static final String KEY = "tepg5bj";
+  // Keys of the current cache generation, see RedisConfiguration#cacheKey.
+  private static final String GENERATION = "g7:";
+
+  @InjectMocks
+  private NearbyCacheLoader nearbyCacheLoader;
+
+  @Mock
+  private NearbyCacheLayout nearbyCacheLayout;
+
+  @Mock
+  private NearbyCacheCodecs nearbyCacheCodecs;
+
+  @Mock
+  private RedisConfiguration redisConfiguration;
+
+  @Mock
+  private NegativeCache negativeCache;
+
+  @Mock
+  private Jedis jedis;
+
+  @Mock
+  private Pipeline pipeline;
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final List<RestaurantEntity> restaurants = Arrays.asList(new RestaurantEntity());
+
+  @BeforeEach
+  void setup() {
+    ReflectionTestUtils.setField(nearbyCacheLoader, "lockMillis", 2000L);
+    ReflectionTestUtils.setField(nearbyCacheLoader, "waitMillis", 1000L);
+    ReflectionTestUtils.setField(nearbyCacheLoader, "refreshBeta", 1.0);
+    ReflectionTestUtils.setField(nearbyCacheLoader, "meterRegistry", meterRegistry);
+    // Refreshes run on the calling thread.
+    ReflectionTestUtils.setField(nearbyCacheLoader, "refreshExecutor", (Executor) Runnable::run);
+    lenient().when(jedis.pipelined()).thenReturn(pipeline);
+    lenient().when(redisConfiguration.cacheKey(anyString()))
+        .thenAnswer(invocation -> GENERATION + invocation.getArgument(0));
+  }
+
+  @Test
+  void concurrentMissesOfOneKeyLoadItOnce() throws Exception {
+    when(jedis.set(anyString(), anyString(), eq("NX"), eq("PX"), anyLong())).thenReturn("OK");
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(nearbyCacheLayout.load(KEY)).thenAnswer(invocation -> {
+      loading.countDown();
+      release.await();
+      return restaurants;
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<RestaurantEntity>>> results = new ArrayList<>();
+      results.add(executor.submit(() -> nearbyCacheLoader.load(jedis, KEY)));
+      loading.await();
+      for (int i = 0; i < 3; i++) {
+        results.add(executor.submit(() -> nearbyCacheLoader.load(jedis, KEY)));
+      }
+      // Let the waiters reach the in-flight load before it completes.
+      Thread.sleep(100);
+      release.countDown();
+
+      for (Future<List<RestaurantEntity>> result : results) {
+        assertSame(restaurants, result.get(5, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    verify(nearbyCacheLayout, times(1)).load(KEY);
+    verify(pipeline, times(1)).setex(any(byte[].class), anyInt(), (byte[]) any());
+    verify(jedis, times(1)).eval(anyString(), anyList(), anyList());
+  }
+
+  @Test
+  void emptyEntryIsStoredAsANegativeEntry() throws Exception {
+    when(jedis.set(anyString(), anyString(), eq("NX"), eq("PX"), anyLong())).thenReturn("OK");
+    when(nearbyCacheLayout.load(KEY)).thenReturn(new ArrayList<>());
+    when(negativeCache.getTtlSeconds()).thenReturn(300);
+
+    assertTrue(nearbyCacheLoader.load(jedis, KEY).isEmpty());
+    verify(pipeline, times(1))
+        .setex(aryEq(SafeEncoder.encode(GENERATION + KEY)), eq(300), (byte[]) any());
+    verify(negativeCache, times(1)).trackEmptyNearbyEntry(pipeline, KEY);
+  }
+
+  @Test
+  void entryLoadedByAnotherInstanceIsWaitedFor() throws Exception {
+    byte[] cacheEntry = new byte[] {0, 1};
+    when(jedis.set(anyString(), anyString(), eq("NX"), eq("PX"), anyLong())).thenReturn(null);
+    when(jedis.get(any(byte[].class))).thenReturn(null, cacheEntry);
+    when(nearbyCacheCodecs.decode(cacheEntry)).thenReturn(restaurants);
+
+    assertSame(restaurants, nearbyCacheLoader.load(jedis, KEY));
+    verify(nearbyCacheLayout, never()).load(KEY);
+  }
+
+  @Test
+  void waiterLoadsTheEntryItselfAfterTheWait() throws Exception {
+    ReflectionTestUtils.setField(nearbyCacheLoader, "waitMillis", 50L);
+    when(jedis.set(anyString(), anyString(), eq("NX"), eq("PX"), anyLong())).thenReturn(null);
+    when(nearbyCacheLayout.load(KEY)).thenReturn(restaurants);
+
+    assertEquals(restaurants, nearbyCacheLoader.load(jedis, KEY));
+    verify(nearbyCacheLayout, times(1)).load(KEY);
+    verify(pipeline, times(1)).setex(any(byte[].class), anyInt(), (byte[]) any());
+  }
+
+  @Test
+  void refreshIsOnlyDueNearTheExpiry() {
+    long now = System.currentTimeMillis();
+
+    assertFalse(nearbyCacheLoader.isRefreshDue(now, now + 3_600_000, 100));
+    assertTrue(nearbyCacheLoader.isRefreshDue(now, now, 100));
+  }
+
+  @Test
+  void dueEntryIsReloadedInTheBackground() throws Exception {
+    JedisPool jedisPool = mock(JedisPool.class);
+    when(redisConfiguration.getJedisPool()).thenReturn(jedisPool);
+    when(jedisPool.getResource()).thenReturn(jedis);
+    when(jedis.set(anyString(), anyString(), eq("NX"), eq("PX"), anyLong())).thenReturn("OK");
+    when(nearbyCacheLayout.load(KEY)).thenReturn(restaurants);
+    byte[] refreshInfo = SafeEncoder.encode(System.currentTimeMillis() + ":100");
+
+    nearbyCacheLoader.refreshIfDue(KEY, refreshInfo);
+
+    verify(nearbyCacheLayout, times(1)).load(KEY);
+    verify(pipeline, times(1)).setex(eq(GENERATION + NearbyCacheLoader.refreshInfoKey(KEY)),
+        anyInt(), anyString());
+    assertEquals(1.0, meterRegistry.get("qeats.cache.nearby.refreshes").counter().count());
+    assertEquals(1, meterRegistry.get("qeats.cache.nearby.refresh.saved").timer().count());
+  }
+
+  @Test
+  void entriesWithoutRefreshInfoAreNotRefreshed() {
+    nearbyCacheLoader.refreshIfDue(KEY, null);
+
+    verify(nearbyCacheLayout, never()).load(KEY);
+  }
+}
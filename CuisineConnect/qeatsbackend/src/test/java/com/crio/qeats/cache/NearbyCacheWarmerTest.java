@@ -0,0 +1,132 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ch.hsr.geohash.GeoHash;
+import ch.hsr.geohash.WGS84Point;
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositoryservices.NearbyRestaurantsFinder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+@ExtendWith(MockitoExtension.class)
+class NearbyCacheWarmerTest {
+
+  private static final String LOCATIONS = "classpath:fixtures/warmup/hot_locations.txt";
+
+  @InjectMocks
+  private NearbyCacheWarmer nearbyCacheWarmer;
+
+  @Mock
+  private RedisConfiguration redisConfiguration;
+
+  @Mock
+  private NearbyCacheLayout nearbyCacheLayout;
+
+  @Mock
+  private NearbyCacheCodecs nearbyCacheCodecs;
+
+  @Mock
+  private NearbyCacheLoader nearbyCacheLoader;
+
+  @Mock
+  private NearbyRestaurantsFinder nearbyRestaurantsFinder;
+
+  @BeforeEach
+  void setup() {
+    ReflectionTestUtils.setField(nearbyCacheWarmer, "resourceLoader",
+        new DefaultResourceLoader());
+    ReflectionTestUtils.setField(nearbyCacheWarmer, "locations", LOCATIONS);
+    ReflectionTestUtils.setField(nearbyCacheWarmer, "parallelism", 2);
+    ReflectionTestUtils.setField(nearbyCacheWarmer, "timeoutMillis", 5000L);
+  }
+
+  @Test
+  void locationsAreCoordinatesOrCells() throws Exception {
+    List<WGS84Point> locations = NearbyCacheWarmer.readLocations(
+        new ClassPathResource("fixtures/warmup/hot_locations.txt"));
+
+    assertEquals(2, locations.size());
+    assertEquals(20.0, locations.get(0).getLatitude());
+    assertEquals(30.0, locations.get(0).getLongitude());
+    assertEquals(GeoHash.fromGeohashString("tepg5bj").getBoundingBoxCenterPoint(),
+        locations.get(1));
+  }
+
+  @Test
+  void onlyMissingEntriesAreLoaded() throws Exception {
+    when(nearbyRestaurantsFinder.isCacheable()).thenReturn(true);
+    JedisPool jedisPool = mock(JedisPool.class);
+    Jedis jedis = mock(Jedis.class);
+    when(redisConfiguration.isCacheAvailable()).thenReturn(true);
+    when(redisConfiguration.getJedisPool()).thenReturn(jedisPool);
+    when(jedisPool.getResource()).thenReturn(jedis);
+    when(redisConfiguration.cacheKey(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    // Both locations share the "b" entry.
+    when(nearbyCacheLayout.keysFor(anyDouble(), anyDouble(), anyDouble()))
+        .thenReturn(Arrays.asList("a", "b"), Arrays.asList("b", "c"));
+    byte[] cachedEntry = new byte[] {0, 1};
+    List<RestaurantEntity> restaurants = Collections.singletonList(new RestaurantEntity());
+    when(jedis.get(any(byte[].class))).thenReturn(null, cachedEntry, null);
+    when(nearbyCacheCodecs.decode(cachedEntry)).thenReturn(restaurants);
+    when(nearbyCacheLoader.load(eq(jedis), any())).thenReturn(restaurants);
+    ReflectionTestUtils.setField(nearbyCacheWarmer, "parallelism", 1);
+
+    assertEquals(Status.OUT_OF_SERVICE, nearbyCacheWarmer.health().getStatus());
+    nearbyCacheWarmer.warmUp();
+
+    verify(nearbyCacheLoader, times(2)).load(eq(jedis), any());
+    assertEquals(Status.UP, nearbyCacheWarmer.health().getStatus());
+    assertEquals(3, nearbyCacheWarmer.health().getDetails().get("warmedEntries"));
+  }
+
+  @Test
+  void warmUpIsSkippedWithoutRedis() throws Exception {
+    when(nearbyRestaurantsFinder.isCacheable()).thenReturn(true);
+    when(redisConfiguration.isCacheAvailable()).thenReturn(false);
+
+    nearbyCacheWarmer.warmUp();
+
+    verify(nearbyCacheLoader, never()).load(any(), any());
+    assertEquals(Status.UP, nearbyCacheWarmer.health().getStatus());
+  }
+
+  @Test
+  void warmUpIsSkippedWhenLookupsBypassTheCache() throws Exception {
+    when(nearbyRestaurantsFinder.isCacheable()).thenReturn(false);
+
+    nearbyCacheWarmer.warmUp();
+
+    verify(nearbyCacheLayout, never()).keysFor(anyDouble(), anyDouble(), anyDouble());
+    verify(nearbyCacheLoader, never()).load(any(), any());
+    assertEquals(Status.UP, nearbyCacheWarmer.health().getStatus());
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.configs.RedisCircuitBreaker;
+import com.crio.qeats.configs.RedisConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+@ExtendWith(MockitoExtension.class)
+class NegativeCacheTest {
+
+  private static final String SEARCH_KEY = NegativeCache.searchKey(20.0, 30.0, 5.0, "sushi");
+  // Keys of the current cache generation, see RedisConfiguration#cacheKey.
+  private static final String GENERATION = "g7:";
+
+  @InjectMocks
+  private NegativeCache negativeCache;
+
+  @Mock
+  private RedisConfiguration redisConfiguration;
+
+  @Mock
+  private LocalNearbyCache localNearbyCache;
+
+  @Mock
+  private RedisCircuitBreaker redisCircuitBreaker;
+
+  @Mock
+  private JedisPool jedisPool;
+
+  @Mock
+  private Jedis jedis;
+
+  @Mock
+  private Pipeline pipeline;
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @BeforeEach
+  void setup() {
+    ReflectionTestUtils.setField(negativeCache, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(negativeCache, "ttlSeconds", 300);
+    negativeCache.registerMeters();
+    lenient().when(redisConfiguration.cacheKey(anyString()))
+        .thenAnswer(invocation -> GENERATION + invocation.getArgument(0));
+  }
+
+  @Test
+  void searchKeysIgnoreCaseAndSpacing() {
+    assertEquals(SEARCH_KEY, NegativeCache.searchKey(20.0, 30.0, 5.0, "  SUSHI "));
+    assertNotEquals(SEARCH_KEY, NegativeCache.searchKey(20.0, 30.0, 3.0, "sushi"));
+    assertNotEquals(SEARCH_KEY, NegativeCache.searchKey(-20.0, 30.0, 5.0, "sushi"));
+  }
+
+  @Test
+  void searchHitsAreCounted() {
+    when(redisConfiguration.isCacheAvailable()).thenReturn(true);
+    when(redisConfiguration.getJedisPool()).thenReturn(jedisPool);
+    when(jedisPool.getResource()).thenReturn(jedis);
+    when(jedis.exists(GENERATION + SEARCH_KEY)).thenReturn(true);
+
+    assertTrue(negativeCache.hasNoSearchHits(SEARCH_KEY));
+    assertEquals(1.0, meterRegistry.counter("qeats.cache.negative.hits", "kind", "search")
+        .count());
+  }
+
+  @Test
+  void searchesRunWhileRedisIsDown() {
+    assertFalse(negativeCache.hasNoSearchHits(SEARCH_KEY));
+  }
+
+  @Test
+  void invalidateAllDropsTrackedKeys() {
+    when(redisConfiguration.getJedisPool()).thenReturn(jedisPool);
+    when(jedisPool.getResource()).thenReturn(jedis);
+    doReturn(Collections.singleton("tepg5bj")).when(jedis)
+        .smembers(GENERATION + "negative:nearby");
+    doReturn(Collections.singleton(SEARCH_KEY)).when(jedis)
+        .smembers(GENERATION + "negative:search");
+
+    negativeCache.invalidateAll();
+
+    verify(localNearbyCache).invalidateEmpty();
+    verify(jedis).del(GENERATION + "tepg5bj",
+        GENERATION + NearbyCacheLoader.refreshInfoKey("tepg5bj"), GENERATION + "negative:nearby",
+        GENERATION + SEARCH_KEY, GENERATION + "negative:search");
+  }
+
+  @Test
+  void invalidateSearchesAroundOnlyDropsSearchesThatCanReachTheLocation() {
+    String farAwayKey = NegativeCache.searchKey(-20.0, 30.0, 5.0, "sushi");
+    when(redisConfiguration.getJedisPool()).thenReturn(jedisPool);
+    when(jedisPool.getResource()).thenReturn(jedis);
+    when(jedis.smembers(GENERATION + "negative:search"))
+        .thenReturn(new HashSet<>(Arrays.asList(SEARCH_KEY, farAwayKey)));
+    when(jedis.pipelined()).thenReturn(pipeline);
+
+    negativeCache.invalidateSearchesAround(20.01, 30.01);
+
+    verify(pipeline).del(new String[] {GENERATION + SEARCH_KEY});
+    verify(pipeline).srem(GENERATION + "negative:search", SEARCH_KEY);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SearchResultCacheTest {
+
+  private MeterRegistry meterRegistry;
+  private SearchResultCache searchResultCache;
+
+  @BeforeEach
+  void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    searchResultCache = new SearchResultCache(meterRegistry, 100, 300);
+  }
+
+  @Test
+  void queriesAreNormalized() {
+    assertEquals("south indian", SearchResultCache.normalizeQuery("  South   Indian "));
+  }
+
+  @Test
+  void nearbyPointsShareTheirCell() {
+    assertEquals(SearchResultCache.cellOf(20.8, 30.1), SearchResultCache.cellOf(20.8001, 30.1));
+    assertNotEquals(SearchResultCache.cellOf(20.8, 30.1), SearchResultCache.cellOf(20.9, 30.1));
+  }
+
+  @Test
+  void hitsAndMissesAreCounted() {
+    String key = SearchResultCache.key("name", "tepg5", "biryani");
+    assertNull(searchResultCache.getIfPresent(key));
+    searchResultCache.put(key, Arrays.asList("11", "12"));
+
+    assertEquals(Arrays.asList("11", "12"), searchResultCache.getIfPresent(key));
+    assertEquals(1.0, meterRegistry.counter("qeats.cache.search.lookups", "result", "hit")
+        .count());
+    assertEquals(1.0, meterRegistry.counter("qeats.cache.search.lookups", "result", "miss")
+        .count());
+  }
+
+  @Test
+  void emptyEntriesAreToldApartWithoutCountingALookup() {
+    String emptyKey = SearchResultCache.key("name", "tepg5", "sushi");
+    String key = SearchResultCache.key("name", "tepg5", "biryani");
+    assertFalse(searchResultCache.isCachedEmpty(emptyKey));
+    searchResultCache.put(emptyKey, Collections.emptyList());
+    searchResultCache.put(key, Arrays.asList("11", "12"));
+
+    assertTrue(searchResultCache.isCachedEmpty(emptyKey));
+    assertFalse(searchResultCache.isCachedEmpty(key));
+    assertEquals(0.0, meterRegistry.counter("qeats.cache.search.lookups", "result", "hit")
+        .count());
+  }
+
+  @Test
+  void onlyRadiiUpToTheLargestServingRadiusAreSupported() {
+    assertTrue(searchResultCache.supportsRadius(5.0));
+    assertFalse(searchResultCache.supportsRadius(5.1));
+  }
+
+  @Test
+  void invalidateAroundOnlyDropsCellsWithinTheServingRadius() {
+    String nearbyKey = SearchResultCache.key("name", SearchResultCache.cellOf(20.0, 30.0), "a");
+    String farAwayKey =
+        SearchResultCache.key("name", SearchResultCache.cellOf(-20.0, 30.0), "a");
+    searchResultCache.put(nearbyKey, Arrays.asList("11"));
+    searchResultCache.put(farAwayKey, Arrays.asList("21"));
+
+    searchResultCache.invalidateAround(20.03, 30.03);
+
+    assertNull(searchResultCache.getIfPresent(nearbyKey));
+    assertEquals(Arrays.asList("21"), searchResultCache.getIfPresent(farAwayKey));
+  }
+
+  @Test
+  void invalidateAllDropsEveryEntry() {
+    String key = SearchResultCache.key("name", "tepg5", "biryani");
+    searchResultCache.put(key, Arrays.asList("11"));
+
+    searchResultCache.invalidateAll();
+
+    assertNull(searchResultCache.getIfPresent(key));
+  }
+}
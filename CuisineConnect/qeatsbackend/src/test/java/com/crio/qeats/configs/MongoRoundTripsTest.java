@@ -0,0 +1,55 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+class MongoRoundTripsTest {
+
+  private final MongoRoundTrips mongoRoundTrips = new MongoRoundTrips();
+
+  @Test
+  void countsOnlyCommandsInsideTheScope() {
+    mongoRoundTrips.commandStarted(findCommand());
+
+    MongoRoundTrips.Scope scope = mongoRoundTrips.begin("search");
+    mongoRoundTrips.commandStarted(findCommand());
+    mongoRoundTrips.commandStarted(findCommand());
+    scope.close();
+    mongoRoundTrips.commandStarted(findCommand());
+
+    assertEquals(2, scope.getRoundTrips());
+  }
+
+  @Test
+  void innerScopesAddUpInTheOuterScope() {
+    MongoRoundTrips.Scope outer = mongoRoundTrips.begin("search");
+    mongoRoundTrips.commandStarted(findCommand());
+    try (MongoRoundTrips.Scope inner = mongoRoundTrips.begin("findRestaurantsByName")) {
+      mongoRoundTrips.commandStarted(findCommand());
+      assertEquals(1, inner.getRoundTrips());
+    }
+    outer.close();
+
+    assertEquals(2, outer.getRoundTrips());
+  }
+
+  private static CommandStartedEvent findCommand() {
+    ConnectionDescription connectionDescription =
+        new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+    return new CommandStartedEvent(1, connectionDescription, "restaurant-database", "find",
+        new BsonDocument());
+  }
+}
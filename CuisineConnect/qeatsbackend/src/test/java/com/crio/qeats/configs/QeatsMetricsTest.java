@@ -0,0 +1,49 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.crio.qeats.configs.QeatsMetrics.Stage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class QeatsMetricsTest {
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final QeatsMetrics qeatsMetrics = new QeatsMetrics(meterRegistry);
+
+  @Test
+  void stagesAreTaggedByStageAndOperation() {
+    Timer timer = qeatsMetrics.stage(Stage.MONGO, "itemName");
+    timer.record(5, TimeUnit.MILLISECONDS);
+
+    assertSame(timer, qeatsMetrics.stage(Stage.MONGO, "itemName"));
+    assertEquals(1, meterRegistry.get("qeats.stage.duration").tag("stage", "mongo")
+        .tag("operation", "itemName").timer().count());
+    assertNull(meterRegistry.find("qeats.stage.duration").tag("operation", QeatsMetrics.NEARBY)
+        .timer());
+  }
+
+  @Test
+  void candidatesAndResultsAreDistributions() {
+    qeatsMetrics.recordCandidates(QeatsMetrics.NEARBY, 40);
+    qeatsMetrics.recordCandidates(QeatsMetrics.NEARBY, 60);
+    qeatsMetrics.recordResults(QeatsMetrics.NEARBY, 7);
+
+    assertEquals(2, meterRegistry.get("qeats.candidates").tag("operation", "nearby").summary()
+        .count());
+    assertEquals(100.0, meterRegistry.get("qeats.candidates").tag("operation", "nearby")
+        .summary().totalAmount());
+    assertEquals(7.0, meterRegistry.get("qeats.results").summary().totalAmount());
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.configs.RedisCircuitBreaker.State;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RedisCircuitBreakerTest {
+
+  private MeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void opensAfterConsecutiveFailures() {
+    RedisCircuitBreaker redisCircuitBreaker = new RedisCircuitBreaker(meterRegistry, 3, 60000);
+
+    redisCircuitBreaker.recordFailure();
+    redisCircuitBreaker.recordFailure();
+    redisCircuitBreaker.recordSuccess();
+    redisCircuitBreaker.recordFailure();
+    redisCircuitBreaker.recordFailure();
+    assertTrue(redisCircuitBreaker.allowRequest());
+
+    redisCircuitBreaker.recordFailure();
+    assertEquals(State.OPEN, redisCircuitBreaker.getState());
+    assertFalse(redisCircuitBreaker.allowRequest());
+    assertEquals(2.0, meterRegistry.get("qeats.redis.circuit.state").gauge().value());
+  }
+
+  @Test
+  void letsOneRequestThroughOnceOpenTimePassed() {
+    RedisCircuitBreaker redisCircuitBreaker = open(new RedisCircuitBreaker(meterRegistry, 1, 0));
+
+    assertTrue(redisCircuitBreaker.allowRequest());
+    assertEquals(State.HALF_OPEN, redisCircuitBreaker.getState());
+    assertFalse(redisCircuitBreaker.allowRequest());
+  }
+
+  @Test
+  void successOfTheTrialClosesTheCircuit() {
+    RedisCircuitBreaker redisCircuitBreaker = open(new RedisCircuitBreaker(meterRegistry, 1, 0));
+    redisCircuitBreaker.allowRequest();
+
+    redisCircuitBreaker.recordSuccess();
+
+    assertEquals(State.CLOSED, redisCircuitBreaker.getState());
+    assertTrue(redisCircuitBreaker.allowRequest());
+    assertEquals(1.0, transitions("half_open", "closed"));
+  }
+
+  @Test
+  void failureOfTheTrialReopensTheCircuit() {
+    RedisCircuitBreaker redisCircuitBreaker =
+        open(new RedisCircuitBreaker(meterRegistry, 5, 0));
+    redisCircuitBreaker.allowRequest();
+
+    redisCircuitBreaker.recordFailure();
+
+    assertEquals(State.OPEN, redisCircuitBreaker.getState());
+    assertEquals(2.0, transitions("closed", "open") + transitions("half_open", "open"));
+  }
+
+  private static RedisCircuitBreaker open(RedisCircuitBreaker redisCircuitBreaker) {
+    while (redisCircuitBreaker.getState() != State.OPEN) {
+      redisCircuitBreaker.recordFailure();
+    }
+    return redisCircuitBreaker;
+  }
+
+  private double transitions(String from, String to) {
+    return meterRegistry.counter("qeats.redis.circuit.transitions", "from", from, "to", to)
+        .count();
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+@ExtendWith(MockitoExtension.class)
+class RedisConfigurationTest {
+
+  @InjectMocks
+  private RedisConfiguration redisConfiguration;
+
+  @Mock
+  private RedisCircuitBreaker redisCircuitBreaker;
+
+  @Mock
+  private JedisPool jedisPool;
+
+  @Mock
+  private Jedis jedis;
+
+  @BeforeEach
+  void setup() {
+    ReflectionTestUtils.setField(redisConfiguration, "jedisPool", jedisPool);
+  }
+
+  @Test
+  void keysAreNamespacedByTheGenerationReadFromRedis() {
+    when(redisCircuitBreaker.getState()).thenReturn(RedisCircuitBreaker.State.CLOSED);
+    when(jedisPool.getResource()).thenReturn(jedis);
+    when(jedis.get(RedisConfiguration.CACHE_GENERATION_KEY)).thenReturn("4", (String) null);
+
+    redisConfiguration.refreshCacheGeneration();
+    assertEquals("g4:tepg5bj", redisConfiguration.cacheKey("tepg5bj"));
+
+    // A flushed counter starts over.
+    redisConfiguration.refreshCacheGeneration();
+    assertEquals("g0:tepg5bj", redisConfiguration.cacheKey("tepg5bj"));
+  }
+
+  @Test
+  void nextGenerationIsUsedRightAway() {
+    when(jedisPool.getResource()).thenReturn(jedis);
+    when(jedis.incr(RedisConfiguration.CACHE_GENERATION_KEY)).thenReturn(5L);
+
+    assertEquals(5L, redisConfiguration.nextCacheGeneration());
+    assertEquals("g5:tepg5bj", redisConfiguration.cacheKey("tepg5bj"));
+  }
+
+  @Test
+  void generationIsKeptWhileTheCircuitIsOpen() {
+    when(redisCircuitBreaker.getState()).thenReturn(RedisCircuitBreaker.State.OPEN);
+
+    redisConfiguration.refreshCacheGeneration();
+
+    verify(jedisPool, never()).getResource();
+    assertEquals(0L, redisConfiguration.getCacheGeneration());
+  }
+
+  @Test
+  void destroyCacheDoesNotFlushRedis() {
+    when(jedisPool.getResource()).thenReturn(jedis);
+    when(jedis.incr(RedisConfiguration.CACHE_GENERATION_KEY)).thenReturn(1L);
+
+    redisConfiguration.destroyCache();
+
+    verify(jedis, never()).flushAll();
+    verify(jedisPool).destroy();
+    assertEquals(1L, redisConfiguration.getCacheGeneration());
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.configs;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+@ExtendWith(MockitoExtension.class)
+class RedisHealthMonitorTest {
+
+  @InjectMocks
+  private RedisHealthMonitor redisHealthMonitor;
+
+  @Mock
+  private RedisConfiguration redisConfiguration;
+
+  @Mock
+  private RedisCircuitBreaker redisCircuitBreaker;
+
+  @Mock
+  private JedisPool jedisPool;
+
+  @Mock
+  private Jedis jedis;
+
+  @BeforeEach
+  void setup() {
+    when(redisConfiguration.getJedisPool()).thenReturn(jedisPool);
+  }
+
+  @Test
+  void successfulPingIsReported() {
+    when(jedisPool.getResource()).thenReturn(jedis);
+
+    redisHealthMonitor.probe();
+
+    verify(redisCircuitBreaker).recordSuccess();
+  }
+
+  @Test
+  void unreachableRedisIsReported() {
+    when(jedisPool.getResource()).thenThrow(new JedisConnectionException("refused"));
+
+    redisHealthMonitor.probe();
+
+    verify(redisCircuitBreaker).recordFailure();
+  }
+}
@@ -160,7 +160,7 @@ public class RestaurantControllerTest {
     assertEquals(HttpStatus.OK.value(), response.getStatus());
 
     verify(restaurantService, times(1))
-        .findRestaurantsBySearchQuery(argumentCaptor.capture(), any(LocalTime.class));
+        .findRestaurantsBySearchQueryMt(argumentCaptor.capture(), any(LocalTime.class));
 
     assertEquals("20.21", argumentCaptor.getValue().getLatitude().toString());
 
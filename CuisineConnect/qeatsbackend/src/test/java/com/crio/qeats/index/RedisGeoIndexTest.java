@@ -0,0 +1,232 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.cache.JsonNearbyCacheCodec;
+import com.crio.qeats.cache.NearbyCacheCodecs;
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.crio.qeats.utils.GeoUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.embedded.RedisServer;
+
+@ExtendWith(MockitoExtension.class)
+class RedisGeoIndexTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+  private static final int REDIS_PORT = 6391;
+
+  private static RedisServer redisServer;
+  private static JedisPool jedisPool;
+
+  @InjectMocks
+  private RedisGeoIndex redisGeoIndex;
+
+  @Mock
+  private MongoTemplate mongoTemplate;
+
+  @Mock
+  private RedisConfiguration redisConfiguration;
+
+  private List<RestaurantEntity> restaurants;
+
+  @BeforeAll
+  static void startRedis() throws IOException {
+    redisServer = new RedisServer(REDIS_PORT);
+    redisServer.start();
+    jedisPool = new JedisPool("localhost", REDIS_PORT);
+  }
+
+  @AfterAll
+  static void stopRedis() throws IOException {
+    jedisPool.destroy();
+    redisServer.stop();
+  }
+
+  @BeforeEach
+  void setup() throws IOException {
+    ObjectMapper objectMapper = new Jackson2ObjectMapperBuilder().build();
+    ReflectionTestUtils.setField(redisGeoIndex, "nearbyCacheCodecs", new NearbyCacheCodecs(
+        Collections.singletonList(new JsonNearbyCacheCodec(objectMapper)), "json"));
+    lenient().when(redisConfiguration.getJedisPool()).thenReturn(jedisPool);
+    restaurants = objectMapper.readValue(
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json"),
+        new TypeReference<List<RestaurantEntity>>() {});
+  }
+
+  @AfterEach
+  void teardown() {
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.flushAll();
+    }
+  }
+
+  @Test
+  void restaurantsWithinTheRadiusComeBackNearestFirst() throws IOException {
+    streamFromMongo(restaurants);
+
+    redisGeoIndex.reload();
+
+    assertTrue(redisGeoIndex.isLoaded());
+    // 11 lies closer to the user than 12.
+    assertEquals(restaurantIds(20.0269, 30.0), restaurantIdsWithin(20.0269, 30.0, 3.0, 10));
+    assertEquals(1, redisGeoIndex.findWithin(20.0269, 30.0, 3.0, 1).size());
+    assertTrue(redisGeoIndex.findWithin(-20.0, -30.0, 5.0, 10).isEmpty());
+  }
+
+  @Test
+  void reloadReplacesTheWholeIndex() throws IOException {
+    streamFromMongo(restaurants);
+    redisGeoIndex.reload();
+
+    streamFromMongo(Collections.emptyList());
+    redisGeoIndex.reload();
+
+    assertTrue(redisGeoIndex.findWithin(20.0, 30.0, 3.0, 10).isEmpty());
+    try (Jedis jedis = jedisPool.getResource()) {
+      assertTrue(jedis.keys("geo:*").isEmpty());
+    }
+  }
+
+  @Test
+  void patchMovesOneRestaurantWithoutReloading() throws IOException {
+    RestaurantEntity restaurantEntity = new RestaurantEntity();
+    restaurantEntity.setId("5c9a2aa0a61c8a04c7ee7a11");
+    restaurantEntity.setRestaurantId("99");
+    restaurantEntity.setLatitude(20.0);
+    restaurantEntity.setLongitude(30.0);
+    redisGeoIndex.patch(restaurantEntity.getId(), restaurantEntity);
+    assertEquals(Collections.singletonList("99"), restaurantIdsWithin(20.0, 30.0, 1.0, 10));
+
+    restaurantEntity.setLatitude(-20.0);
+    restaurantEntity.setLongitude(-30.0);
+    redisGeoIndex.patch(restaurantEntity.getId(), restaurantEntity);
+    assertTrue(restaurantIdsWithin(20.0, 30.0, 1.0, 10).isEmpty());
+    assertEquals(Collections.singletonList("99"), restaurantIdsWithin(-20.0, -30.0, 1.0, 10));
+
+    redisGeoIndex.patch(restaurantEntity.getId(), null);
+    assertTrue(restaurantIdsWithin(-20.0, -30.0, 1.0, 10).isEmpty());
+  }
+
+  @Test
+  void patchesMadeDuringAReloadOutliveIt() throws IOException {
+    RestaurantEntity moved = restaurants.get(1);
+    Iterator<RestaurantEntity> iterator = restaurants.iterator();
+    when(mongoTemplate.stream(new Query(), RestaurantEntity.class))
+        .thenReturn(new CloseableIterator<RestaurantEntity>() {
+          @Override
+          public boolean hasNext() {
+            return iterator.hasNext();
+          }
+
+          @Override
+          public RestaurantEntity next() {
+            RestaurantEntity restaurantEntity = iterator.next();
+            if (restaurantEntity == moved) {
+              // The copy read by the reload is older than this patch.
+              RestaurantEntity patched = new RestaurantEntity();
+              patched.setId(moved.getId());
+              patched.setRestaurantId(moved.getRestaurantId());
+              patched.setLatitude(-20.0);
+              patched.setLongitude(-30.0);
+              try {
+                redisGeoIndex.patch(patched.getId(), patched);
+              } catch (IOException e) {
+                throw new IllegalStateException(e);
+              }
+            }
+            return restaurantEntity;
+          }
+
+          @Override
+          public void close() {
+          }
+        });
+
+    redisGeoIndex.reload();
+
+    assertEquals(Collections.singletonList(moved.getRestaurantId()),
+        restaurantIdsWithin(-20.0, -30.0, 1.0, 10));
+    assertFalse(restaurantIdsWithin(moved.getLatitude(), moved.getLongitude(), 0.1, 10)
+        .contains(moved.getRestaurantId()));
+    try (Jedis jedis = jedisPool.getResource()) {
+      assertTrue(jedis.keys("geo:*:loading:*").isEmpty());
+    }
+  }
+
+  // Ids of the fixture restaurants within 3 km of the given point, nearest first.
+  private List<String> restaurantIds(double latitude, double longitude) {
+    return restaurants.stream()
+        .filter(restaurantEntity -> distanceInKms(restaurantEntity, latitude, longitude) <= 3.0)
+        .sorted((first, second) -> Double.compare(distanceInKms(first, latitude, longitude),
+            distanceInKms(second, latitude, longitude)))
+        .map(RestaurantEntity::getRestaurantId)
+        .collect(Collectors.toList());
+  }
+
+  private static double distanceInKms(RestaurantEntity restaurantEntity, double latitude,
+      double longitude) {
+    return GeoUtils.findDistanceInKm(latitude, longitude,
+        restaurantEntity.getLatitude(), restaurantEntity.getLongitude());
+  }
+
+  private List<String> restaurantIdsWithin(double latitude, double longitude,
+      double radiusInKms, int limit) throws IOException {
+    return redisGeoIndex.findWithin(latitude, longitude, radiusInKms, limit).stream()
+        .map(RestaurantEntity::getRestaurantId)
+        .collect(Collectors.toList());
+  }
+
+  private void streamFromMongo(List<RestaurantEntity> restaurantEntities) {
+    Iterator<RestaurantEntity> iterator = restaurantEntities.iterator();
+    when(mongoTemplate.stream(new Query(), RestaurantEntity.class))
+        .thenReturn(new CloseableIterator<RestaurantEntity>() {
+          @Override
+          public boolean hasNext() {
+            return iterator.hasNext();
+          }
+
+          @Override
+          public RestaurantEntity next() {
+            return iterator.next();
+          }
+
+          @Override
+          public void close() {
+          }
+        });
+  }
+}
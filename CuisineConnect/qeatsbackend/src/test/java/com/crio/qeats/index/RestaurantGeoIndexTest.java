@@ -0,0 +1,141 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.globals.GlobalConstants;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositories.RestaurantRepository;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.crio.qeats.utils.GeoHashUtils;
+import com.crio.qeats.utils.GeoUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RestaurantGeoIndexTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  @BeforeEach
+  void setup() throws IOException {
+    restaurantGeoIndex = new RestaurantGeoIndex();
+    restaurantGeoIndex.build(listOfRestaurants());
+  }
+
+  @Test
+  void candidatesOnlyComeFromCellsAroundTheUser() {
+    List<String> candidateIds = restaurantGeoIndex.findCandidates(20.0, 30.0, 3.0).stream()
+        .map(RestaurantEntity::getRestaurantId)
+        .sorted()
+        .collect(Collectors.toList());
+
+    assertEquals(Arrays.asList("10", "11", "12"), candidateIds);
+  }
+
+  @Test
+  void findWithinOnlyKeepsRestaurantsInsideTheRadius() {
+    List<String> restaurantIds = restaurantGeoIndex.findWithin(20.0, 30.0, 3.0).stream()
+        .map(RestaurantEntity::getRestaurantId)
+        .sorted()
+        .collect(Collectors.toList());
+
+    assertEquals(Arrays.asList("11", "12"), restaurantIds);
+  }
+
+  @Test
+  void noCandidatesFarAway() {
+    assertTrue(restaurantGeoIndex.findCandidates(-20.0, -30.0, 5.0).isEmpty());
+  }
+
+  @Test
+  void restaurantsAcrossACellBoundaryAreCandidates() {
+    // Put a restaurant just across the western edge of the user's cell.
+    double cellWidth = GeoHashUtils.cellLongitudeSpan(GlobalConstants.INDEX_GEOHASH_PRECISION);
+    double westEdge = Math.floor(30.0 / cellWidth) * cellWidth;
+    RestaurantEntity restaurantEntity = new RestaurantEntity();
+    restaurantEntity.setRestaurantId("99");
+    restaurantEntity.setLatitude(20.0);
+    restaurantEntity.setLongitude(westEdge - 0.001);
+    restaurantGeoIndex.build(Arrays.asList(restaurantEntity));
+
+    double userLongitude = westEdge + 0.001;
+    assertTrue(GeoUtils.findDistanceInKm(20.0, userLongitude, 20.0, westEdge - 0.001) < 1.0);
+    assertEquals(1, restaurantGeoIndex.findCandidates(20.0, userLongitude, 1.0).size());
+  }
+
+  @Test
+  void patchMovesOneRestaurantWithoutReloading() {
+    RestaurantEntity restaurantEntity = new RestaurantEntity();
+    restaurantEntity.setId("5c9a2aa0a61c8a04c7ee7a11");
+    restaurantEntity.setRestaurantId("99");
+    restaurantEntity.setLatitude(20.0);
+    restaurantEntity.setLongitude(30.0);
+    restaurantGeoIndex.patch(restaurantEntity.getId(), restaurantEntity);
+    assertTrue(restaurantIdsWithin(20.0, 30.0).contains("99"));
+
+    RestaurantEntity moved = new RestaurantEntity();
+    moved.setId(restaurantEntity.getId());
+    moved.setRestaurantId("99");
+    moved.setLatitude(-20.0);
+    moved.setLongitude(-30.0);
+    restaurantGeoIndex.patch(moved.getId(), moved);
+    assertFalse(restaurantIdsWithin(20.0, 30.0).contains("99"));
+    assertEquals(Arrays.asList("99"), restaurantIdsWithin(-20.0, -30.0));
+
+    restaurantGeoIndex.patch(moved.getId(), null);
+    assertTrue(restaurantIdsWithin(-20.0, -30.0).isEmpty());
+    assertEquals(Arrays.asList("11", "12"), restaurantIdsWithin(20.0, 30.0));
+  }
+
+  @Test
+  void periodicReloadsOnlyRefreshALoadedIndex() {
+    RestaurantRepository restaurantRepository = mock(RestaurantRepository.class);
+    ReflectionTestUtils.setField(restaurantGeoIndex, "restaurantRepository",
+        restaurantRepository);
+    when(restaurantRepository.findAll()).thenReturn(Collections.emptyList());
+
+    restaurantGeoIndex.reloadPeriodically();
+    assertTrue(restaurantIdsWithin(20.0, 30.0).isEmpty());
+
+    restaurantGeoIndex.invalidate();
+    restaurantGeoIndex.reloadPeriodically();
+    assertFalse(restaurantGeoIndex.isLoaded());
+    verify(restaurantRepository, times(1)).findAll();
+  }
+
+  private List<String> restaurantIdsWithin(double latitude, double longitude) {
+    return restaurantGeoIndex.findWithin(latitude, longitude, 3.0).stream()
+        .map(RestaurantEntity::getRestaurantId)
+        .sorted()
+        .collect(Collectors.toList());
+  }
+
+  private List<RestaurantEntity> listOfRestaurants() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+
+    return new ObjectMapper().readValue(fixture, new TypeReference<List<RestaurantEntity>>() {
+    });
+  }
+}
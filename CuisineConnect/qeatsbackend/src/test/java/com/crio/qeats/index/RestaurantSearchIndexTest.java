@@ -0,0 +1,143 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+
+@ExtendWith(MockitoExtension.class)
+class RestaurantSearchIndexTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  @InjectMocks
+  private RestaurantSearchIndex restaurantSearchIndex;
+
+  @Mock
+  private MongoTemplate mongoTemplate;
+
+  @BeforeEach
+  void setup() throws IOException {
+    List<RestaurantEntity> restaurants = new ObjectMapper().readValue(
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json"),
+        new TypeReference<List<RestaurantEntity>>() {});
+    MenuEntity menuEntity = new MenuEntity("menu11", "11", Arrays.asList(
+        item("Chicken Briyani", "Mughal", "Spicy"),
+        item("Veg Briyani", "Mughal", "Vegetarian")));
+    doReturn(closeableIterator(restaurants))
+        .when(mongoTemplate).stream(any(Query.class), eq(RestaurantEntity.class));
+    doReturn(closeableIterator(Collections.singletonList(menuEntity)))
+        .when(mongoTemplate).stream(any(Query.class), eq(MenuEntity.class));
+  }
+
+  @Test
+  void indexIsLoadedOnTheFirstSearch() {
+    assertEquals(new HashSet<>(Arrays.asList("10", "11", "12", "13", "14")),
+        restaurantSearchIndex.findRestaurantIdsByName("a2b"));
+    assertEquals(Collections.singleton("14"),
+        restaurantSearchIndex.findRestaurantIdsByName("A2B Ananda"));
+    assertTrue(restaurantSearchIndex.findRestaurantIdsByName("a2c").isEmpty());
+
+    verify(mongoTemplate, times(1)).stream(any(Query.class), eq(RestaurantEntity.class));
+  }
+
+  @Test
+  void attributesMatchEveryQueryWord() {
+    restaurantSearchIndex.reload();
+
+    assertTrue(restaurantSearchIndex.findRestaurantIdsByAttributes("south ind").contains("10"));
+    assertTrue(restaurantSearchIndex.findRestaurantIdsByAttributes("south xyz").isEmpty());
+  }
+
+  @Test
+  void itemsMatchTheRestaurantsServingThem() {
+    restaurantSearchIndex.reload();
+
+    assertEquals(Collections.singleton("11"),
+        restaurantSearchIndex.findRestaurantIdsByItemName("paneer chicken"));
+    // Both attributes have to be on the same item.
+    assertEquals(Collections.singleton("11"),
+        restaurantSearchIndex.findRestaurantIdsByItemAttributes("mughal spicy"));
+    assertTrue(restaurantSearchIndex.findRestaurantIdsByItemAttributes("veg spicy").isEmpty());
+  }
+
+  @Test
+  void patchesReplaceSingleRestaurantsAndMenus() {
+    restaurantSearchIndex.reload();
+
+    RestaurantEntity renamed = new RestaurantEntity();
+    renamed.setName("Dosa Corner");
+    restaurantSearchIndex.patchRestaurant("10", renamed);
+    restaurantSearchIndex.patchRestaurant("11", null);
+    assertEquals(new HashSet<>(Arrays.asList("12", "13", "14")),
+        restaurantSearchIndex.findRestaurantIdsByName("a2b"));
+    assertEquals(Collections.singleton("10"),
+        restaurantSearchIndex.findRestaurantIdsByName("dosa"));
+
+    restaurantSearchIndex.patchMenu("menu11", new MenuEntity("menu11", "11",
+        Collections.singletonList(item("Paneer Tikka", "North Indian"))));
+    assertTrue(restaurantSearchIndex.findRestaurantIdsByItemName("briyani").isEmpty());
+    assertEquals(Collections.singleton("11"),
+        restaurantSearchIndex.findRestaurantIdsByItemName("paneer"));
+
+    restaurantSearchIndex.patchMenu("menu11", null);
+    assertTrue(restaurantSearchIndex.findRestaurantIdsByItemName("paneer").isEmpty());
+  }
+
+  private static Item item(String name, String... attributes) {
+    Item item = new Item();
+    item.setName(name);
+    item.setAttributes(Arrays.asList(attributes));
+    return item;
+  }
+
+  private static <T> CloseableIterator<T> closeableIterator(List<T> entities) {
+    Iterator<T> iterator = entities.iterator();
+    return new CloseableIterator<T>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public T next() {
+        return iterator.next();
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TokenIndexTest {
+
+  private TokenIndex tokenIndex;
+
+  @BeforeEach
+  void setup() {
+    tokenIndex = new TokenIndex();
+    tokenIndex.put("10", Arrays.asList("Tamil", "South Indian"));
+    tokenIndex.put("11", Arrays.asList("North Indian"));
+  }
+
+  @Test
+  void textIsSplitIntoLowercaseWords() {
+    assertEquals(Arrays.asList("chicken", "65", "briyani"),
+        TokenIndex.tokenize(" Chicken-65 (Briyani) "));
+    assertTrue(TokenIndex.tokenize(null).isEmpty());
+  }
+
+  @Test
+  void queryWordsMatchThePrefixesOfWords() {
+    assertEquals(new HashSet<>(Arrays.asList("10", "11")),
+        tokenIndex.matchAll(TokenIndex.tokenize("ind")));
+    assertEquals(Collections.singleton("10"),
+        tokenIndex.matchAll(TokenIndex.tokenize("SOUTH ind")));
+    assertTrue(tokenIndex.matchAll(TokenIndex.tokenize("dian")).isEmpty());
+    assertTrue(tokenIndex.matchAll(Collections.emptyList()).isEmpty());
+  }
+
+  @Test
+  void anyWordMatchesWithMatchAny() {
+    assertEquals(new HashSet<>(Arrays.asList("10", "11")),
+        tokenIndex.matchAny(TokenIndex.tokenize("tamil north")));
+  }
+
+  @Test
+  void wordsLongerThanTheGramsAreCheckedInFull() {
+    tokenIndex.put("12", Collections.singletonList("Supercalifragilistic"));
+    tokenIndex.put("13", Collections.singletonList("Supercalifragilisticexpialidocious"));
+
+    assertEquals(Collections.singleton("13"),
+        tokenIndex.matchAll(TokenIndex.tokenize("supercalifragilisticexpi")));
+    assertEquals(new HashSet<>(Arrays.asList("12", "13")),
+        tokenIndex.matchAll(TokenIndex.tokenize("supercalifragilistic")));
+  }
+
+  @Test
+  void putReplacesAndRemoveDropsTheWordsOfADocument() {
+    tokenIndex.put("10", Collections.singletonList("Chinese"));
+    assertEquals(Collections.singleton("11"), tokenIndex.matchAll(TokenIndex.tokenize("ind")));
+    assertEquals(Collections.singleton("10"), tokenIndex.matchAll(TokenIndex.tokenize("chi")));
+
+    tokenIndex.remove("10");
+    assertTrue(tokenIndex.matchAll(TokenIndex.tokenize("chi")).isEmpty());
+    assertEquals(1, tokenIndex.size());
+  }
+}
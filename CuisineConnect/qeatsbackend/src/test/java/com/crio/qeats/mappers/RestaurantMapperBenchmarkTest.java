@@ -0,0 +1,92 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.mappers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.RestaurantEntity;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+// Run with ./gradlew :qeatsbackend:benchmark
+@Tag("benchmark")
+class RestaurantMapperBenchmarkTest {
+
+  private static final int RESTAURANTS = 100;
+  private static final int WARMUP_ROUNDS = 50;
+  private static final int MEASURED_ROUNDS = 200;
+
+  @Test
+  void compareWithPrototypeModelMapper() {
+    List<RestaurantEntity> restaurantEntities = restaurantEntities();
+    RestaurantMapper restaurantMapper = new RestaurantMapper();
+
+    // What the search paths did before: a new ModelMapper per element.
+    Function<RestaurantEntity, Restaurant> modelMapper =
+        restaurantEntity -> new ModelMapper().map(restaurantEntity, Restaurant.class);
+
+    long modelMapperNanos = measure(restaurantEntities, modelMapper);
+    long restaurantMapperNanos = measure(restaurantEntities, restaurantMapper::toRestaurant);
+
+    System.out.printf("Mapping %d restaurants: ModelMapper %.1f us, RestaurantMapper %.1f us%n",
+        RESTAURANTS, modelMapperNanos / 1000.0, restaurantMapperNanos / 1000.0);
+    assertEquals(modelMapper.apply(restaurantEntities.get(0)),
+        restaurantMapper.toRestaurant(restaurantEntities.get(0)));
+  }
+
+  // Average time of mapping the whole list once, after warming up.
+  private static long measure(List<RestaurantEntity> restaurantEntities,
+      Function<RestaurantEntity, Restaurant> mapper) {
+    long blackhole = 0;
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      blackhole += mapAll(restaurantEntities, mapper);
+    }
+    long start = System.nanoTime();
+    for (int round = 0; round < MEASURED_ROUNDS; round++) {
+      blackhole += mapAll(restaurantEntities, mapper);
+    }
+    long elapsed = System.nanoTime() - start;
+    assertEquals((WARMUP_ROUNDS + MEASURED_ROUNDS) * (long) RESTAURANTS, blackhole);
+    return elapsed / MEASURED_ROUNDS;
+  }
+
+  private static long mapAll(List<RestaurantEntity> restaurantEntities,
+      Function<RestaurantEntity, Restaurant> mapper) {
+    long mapped = 0;
+    for (RestaurantEntity restaurantEntity : restaurantEntities) {
+      if (mapper.apply(restaurantEntity) != null) {
+        mapped++;
+      }
+    }
+    return mapped;
+  }
+
+  private static List<RestaurantEntity> restaurantEntities() {
+    List<RestaurantEntity> restaurantEntities = new ArrayList<>();
+    for (int i = 0; i < RESTAURANTS; i++) {
+      RestaurantEntity restaurantEntity = new RestaurantEntity();
+      restaurantEntity.setId("id" + i);
+      restaurantEntity.setRestaurantId(String.valueOf(i));
+      restaurantEntity.setName("Restaurant " + i);
+      restaurantEntity.setCity("Hsr Layout");
+      restaurantEntity.setImageUrl("www.google.com");
+      restaurantEntity.setLatitude(20.0 + i * 0.001);
+      restaurantEntity.setLongitude(30.0);
+      restaurantEntity.setOpensAt("18:00");
+      restaurantEntity.setClosesAt("23:00");
+      restaurantEntity.setAttributes(Arrays.asList("Tamil", "South Indian"));
+      restaurantEntities.add(restaurantEntity);
+    }
+    return restaurantEntities;
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.mappers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import com.crio.qeats.dto.Item;
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+class RestaurantMapperTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  private final RestaurantMapper restaurantMapper = new RestaurantMapper();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void restaurantMatchesModelMapper() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+    List<RestaurantEntity> restaurantEntities =
+        objectMapper.readValue(fixture, new TypeReference<List<RestaurantEntity>>() {});
+
+    for (RestaurantEntity restaurantEntity : restaurantEntities) {
+      Restaurant restaurant = restaurantMapper.toRestaurant(restaurantEntity);
+
+      assertEquals(new ModelMapper().map(restaurantEntity, Restaurant.class), restaurant);
+      assertNotSame(restaurantEntity.getAttributes(), restaurant.getAttributes());
+    }
+  }
+
+  @Test
+  void itemMatchesModelMapper() throws IOException {
+    String fixture = FixtureHelpers.fixture(FIXTURES + "/item_dosai.json");
+    ItemEntity itemEntity = objectMapper.readValue(fixture, ItemEntity.class);
+
+    Item item = restaurantMapper.toItem(itemEntity);
+
+    assertEquals(new ModelMapper().map(itemEntity, Item.class), item);
+    assertEquals(75, item.getPrice());
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.models;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class OpeningHoursTest {
+
+  @Test
+  void openStrictlyBetweenOpeningAndClosingTime() {
+    OpeningHours openingHours = OpeningHours.of("18:00", "23:00", null);
+
+    assertFalse(openingHours.isOpenAt(LocalTime.of(18, 0)));
+    assertTrue(openingHours.isOpenAt(LocalTime.of(18, 0, 1)));
+    assertTrue(openingHours.isOpenAt(LocalTime.of(22, 59)));
+    assertFalse(openingHours.isOpenAt(LocalTime.of(23, 0)));
+    assertFalse(openingHours.isOpenAt(LocalTime.of(12, 0)));
+  }
+
+  @Test
+  void windowCrossingMidnight() {
+    OpeningHours openingHours = OpeningHours.of("18:00", "02:00", null);
+
+    assertTrue(openingHours.isOpenAt(LocalTime.of(23, 30)));
+    assertTrue(openingHours.isOpenAt(LocalTime.of(1, 30)));
+    assertFalse(openingHours.isOpenAt(LocalTime.of(2, 30)));
+    assertFalse(openingHours.isOpenAt(LocalTime.of(17, 0)));
+  }
+
+  @Test
+  void slotsReplaceOpensAtAndClosesAt() {
+    OpeningHours openingHours = OpeningHours.of("18:00", "23:00",
+        Arrays.asList("11:00-15:00", "19:00-01:00"));
+
+    assertTrue(openingHours.isOpenAt(LocalTime.of(12, 0)));
+    assertFalse(openingHours.isOpenAt(LocalTime.of(18, 30)));
+    assertTrue(openingHours.isOpenAt(LocalTime.of(0, 30)));
+  }
+
+  @Test
+  void entityReparsesAfterHoursChange() {
+    RestaurantEntity restaurantEntity = new RestaurantEntity();
+    restaurantEntity.setOpensAt("18:00");
+    restaurantEntity.setClosesAt("23:00");
+    assertFalse(restaurantEntity.getOpeningHours().isOpenAt(LocalTime.of(12, 0)));
+
+    restaurantEntity.setOpensAt("10:00");
+    assertTrue(restaurantEntity.getOpeningHours().isOpenAt(LocalTime.of(12, 0)));
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositories;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.crio.qeats.cache.CacheInvalidator;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.models.MenuEntity;
+import com.crio.qeats.models.RestaurantEntity;
+import com.mongodb.MongoClient;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfigBuilder;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.config.Storage;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+import java.util.Collections;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+// Change streams only work on replica sets, so this starts a single node one with
+// flapdoodle instead of relying on the standalone embedded Mongo of the other tests.
+class CacheChangeStreamListenerReplicaSetTest {
+
+  private static final String REPLICA_SET = "rs0";
+  private static final long TIMEOUT_MILLIS = 10000;
+
+  private static MongodExecutable mongodExecutable;
+  private static MongoClient mongoClient;
+
+  private MongoTemplate mongoTemplate;
+  private CacheInvalidator cacheInvalidator;
+  private CacheChangeStreamListener cacheChangeStreamListener;
+
+  @BeforeAll
+  static void startReplicaSet() throws Exception {
+    int port = Network.getFreeServerPort();
+    mongodExecutable = MongodStarter.getDefaultInstance().prepare(new MongodConfigBuilder()
+        .version(Version.Main.V4_0)
+        .net(new Net("localhost", port, Network.localhostIsIPv6()))
+        .replication(new Storage(null, REPLICA_SET, 0))
+        .build());
+    mongodExecutable.start();
+
+    mongoClient = new MongoClient("localhost", port);
+    mongoClient.getDatabase("admin").runCommand(new Document("replSetInitiate",
+        new Document("_id", REPLICA_SET).append("members", Collections.singletonList(
+            new Document("_id", 0).append("host", "localhost:" + port)))));
+    // The node takes a moment to elect itself primary.
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (!Boolean.TRUE.equals(
+        mongoClient.getDatabase("admin").runCommand(new Document("isMaster", 1))
+            .getBoolean("ismaster"))) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new IllegalStateException("The replica set did not elect a primary");
+      }
+      Thread.sleep(100);
+    }
+  }
+
+  @AfterAll
+  static void stopReplicaSet() {
+    if (mongoClient != null) {
+      mongoClient.close();
+    }
+    if (mongodExecutable != null) {
+      mongodExecutable.stop();
+    }
+  }
+
+  @BeforeEach
+  void setup() throws Exception {
+    mongoTemplate = new MongoTemplate(mongoClient, "restaurant-database");
+    mongoTemplate.dropCollection(RestaurantEntity.class);
+    mongoTemplate.dropCollection(MenuEntity.class);
+    cacheInvalidator = mock(CacheInvalidator.class);
+
+    cacheChangeStreamListener = new CacheChangeStreamListener();
+    ReflectionTestUtils.setField(cacheChangeStreamListener, "mongoTemplate", mongoTemplate);
+    ReflectionTestUtils.setField(cacheChangeStreamListener, "menuRepository",
+        mock(MenuRepository.class));
+    ReflectionTestUtils.setField(cacheChangeStreamListener, "cacheInvalidator",
+        cacheInvalidator);
+    ReflectionTestUtils.setField(cacheChangeStreamListener, "restaurantGeoIndex",
+        mock(RestaurantGeoIndex.class));
+    ReflectionTestUtils.setField(cacheChangeStreamListener, "startTimeoutMillis",
+        TIMEOUT_MILLIS);
+    cacheChangeStreamListener.start();
+  }
+
+  @AfterEach
+  void teardown() {
+    cacheChangeStreamListener.stop();
+  }
+
+  @Test
+  void savedRestaurantsOnlyInvalidateTheCellsAroundThem() {
+    RestaurantEntity restaurantEntity = new RestaurantEntity();
+    restaurantEntity.setRestaurantId("10");
+    restaurantEntity.setLatitude(20.0);
+    restaurantEntity.setLongitude(30.0);
+    mongoTemplate.save(restaurantEntity);
+    verify(cacheInvalidator, timeout(TIMEOUT_MILLIS)).invalidateRestaurantAt(20.0, 30.0);
+
+    restaurantEntity.setLatitude(21.0);
+    restaurantEntity.setLongitude(31.0);
+    mongoTemplate.save(restaurantEntity);
+    verify(cacheInvalidator, timeout(TIMEOUT_MILLIS)).invalidateRestaurantAt(21.0, 31.0);
+
+    MenuEntity menuEntity = new MenuEntity();
+    menuEntity.setRestaurantId("10");
+    mongoTemplate.save(menuEntity);
+    verify(cacheInvalidator, timeout(TIMEOUT_MILLIS)).invalidateSearchesAround(21.0, 31.0);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositories;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.cache.CacheInvalidator;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.models.RestaurantEntity;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import java.util.Arrays;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+@ExtendWith(MockitoExtension.class)
+class CacheChangeStreamListenerTest {
+
+  private static final ObjectId ID = new ObjectId("5c9a2aa0a61c8a04c7ee7a11");
+
+  @InjectMocks
+  private CacheChangeStreamListener cacheChangeStreamListener;
+
+  @Mock
+  private MongoTemplate mongoTemplate;
+
+  @Mock
+  private MenuRepository menuRepository;
+
+  @Mock
+  private CacheInvalidator cacheInvalidator;
+
+  @Mock
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  @BeforeEach
+  void setup() {
+    MappingMongoConverter converter =
+        new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+    converter.afterPropertiesSet();
+    // Menu changes do not read restaurants.
+    lenient().when(mongoTemplate.getConverter()).thenReturn(converter);
+  }
+
+  @Test
+  void movedRestaurantsDropTheirOldAndNewCells() {
+    cacheChangeStreamListener.onChange(CacheChangeStreamListener.RESTAURANTS,
+        change(OperationType.INSERT, restaurant(20.0, 30.0)));
+    verify(cacheInvalidator).invalidateRestaurantAt(20.0, 30.0);
+
+    cacheChangeStreamListener.onChange(CacheChangeStreamListener.RESTAURANTS,
+        change(OperationType.REPLACE, restaurant(21.0, 31.0)));
+
+    verify(cacheInvalidator, times(2)).invalidateRestaurantAt(20.0, 30.0);
+    verify(cacheInvalidator).invalidateRestaurantAt(21.0, 31.0);
+    verify(cacheInvalidator, never()).invalidateAll();
+    verify(restaurantGeoIndex, times(2)).patch(eq(ID.toHexString()), any());
+  }
+
+  @Test
+  void deletedRestaurantsDropTheCellsTheyWereIn() {
+    cacheChangeStreamListener.onChange(CacheChangeStreamListener.RESTAURANTS,
+        change(OperationType.INSERT, restaurant(20.0, 30.0)));
+
+    cacheChangeStreamListener.onChange(CacheChangeStreamListener.RESTAURANTS,
+        change(OperationType.DELETE, null));
+
+    // The geo index forgets the restaurant before its cells are dropped and loaded again.
+    InOrder inOrder = inOrder(restaurantGeoIndex, cacheInvalidator);
+    inOrder.verify(restaurantGeoIndex).patch(eq(ID.toHexString()), isNull());
+    inOrder.verify(cacheInvalidator).invalidateRestaurantAt(20.0, 30.0);
+    verify(cacheInvalidator, times(2)).invalidateRestaurantAt(20.0, 30.0);
+  }
+
+  @Test
+  void updatesOfRestaurantsWithoutAKnownLocationDropEverything() {
+    cacheChangeStreamListener.onChange(CacheChangeStreamListener.RESTAURANTS,
+        change(OperationType.UPDATE, restaurant(20.0, 30.0)));
+
+    verify(cacheInvalidator).invalidateAll();
+    verify(cacheInvalidator).invalidateRestaurantAt(20.0, 30.0);
+  }
+
+  @Test
+  void menuChangesDropTheSearchesAroundTheirRestaurant() {
+    RestaurantEntity restaurantEntity = new RestaurantEntity();
+    restaurantEntity.setLatitude(20.0);
+    restaurantEntity.setLongitude(30.0);
+    when(mongoTemplate.find(any(Query.class), eq(RestaurantEntity.class)))
+        .thenReturn(Arrays.asList(restaurantEntity));
+
+    cacheChangeStreamListener.onChange(CacheChangeStreamListener.MENUS,
+        change(OperationType.REPLACE, new Document("restaurantId", "10")));
+
+    verify(cacheInvalidator).invalidateSearchesAround(20.0, 30.0);
+    verify(cacheInvalidator, never()).invalidateRestaurantAt(20.0, 30.0);
+  }
+
+  @Test
+  void deletedMenusDropEverySearch() {
+    cacheChangeStreamListener.onChange(CacheChangeStreamListener.MENUS,
+        change(OperationType.DELETE, null));
+
+    verify(cacheInvalidator).invalidateAllSearches();
+  }
+
+  private static Document restaurant(double latitude, double longitude) {
+    return new Document("_id", ID)
+        .append("restaurantId", "10")
+        .append("latitude", latitude)
+        .append("longitude", longitude);
+  }
+
+  private static ChangeStreamDocument<Document> change(OperationType operationType,
+      Document fullDocument) {
+    return new ChangeStreamDocument<>(new BsonDocument(),
+        new MongoNamespace("restaurant-database", "restaurants"), fullDocument,
+        new BsonDocument("_id", new BsonObjectId(ID)), operationType, null);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.cache.SearchResultCache;
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.index.RestaurantSearchIndex;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.repositoryservices.RestaurantRepositoryService;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(classes = {QEatsApplication.class},
+    properties = {"qeats.search.strategy=index"})
+@DirtiesContext
+@ActiveProfiles("test")
+class CacheInvalidationListenerTest {
+
+  private static final LocalTime NOON = LocalTime.of(12, 0);
+
+  @Autowired
+  private RestaurantRepository restaurantRepository;
+  @Autowired
+  private RestaurantRepositoryService restaurantRepositoryService;
+  @Autowired
+  private RestaurantGeoIndex restaurantGeoIndex;
+  @Autowired
+  private RestaurantSearchIndex restaurantSearchIndex;
+  @Autowired
+  private SearchResultCache searchResultCache;
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @BeforeEach
+  void setup() {
+    // Loaded before the save, so only the listener can bring the restaurant in.
+    restaurantGeoIndex.reload();
+    restaurantSearchIndex.reload();
+  }
+
+  @AfterEach
+  void teardown() {
+    mongoTemplate.dropCollection("restaurants");
+    searchResultCache.invalidateAll();
+    restaurantGeoIndex.invalidate();
+  }
+
+  @Test
+  void savedRestaurantsAreFoundByIndexedSearchesWhereTheyAre() {
+    RestaurantEntity restaurantEntity = new RestaurantEntity();
+    restaurantEntity.setRestaurantId("99");
+    restaurantEntity.setName("Dosa Corner");
+    restaurantEntity.setCity("Hsr Layout");
+    restaurantEntity.setImageUrl("www.google.com");
+    restaurantEntity.setLatitude(20.0);
+    restaurantEntity.setLongitude(30.0);
+    restaurantEntity.setOpensAt("10:00");
+    restaurantEntity.setClosesAt("22:00");
+    restaurantEntity.setAttributes(Collections.singletonList("South Indian"));
+    restaurantRepository.save(restaurantEntity);
+
+    assertEquals(Collections.singletonList("99"), restaurantIdsByName(20.0, 30.0));
+
+    restaurantEntity.setLatitude(-20.0);
+    restaurantEntity.setLongitude(-30.0);
+    restaurantRepository.save(restaurantEntity);
+
+    assertTrue(restaurantIdsByName(20.0, 30.0).isEmpty());
+    assertEquals(Collections.singletonList("99"), restaurantIdsByName(-20.0, -30.0));
+
+    restaurantRepository.deleteById(restaurantEntity.getId());
+
+    assertTrue(restaurantIdsByName(-20.0, -30.0).isEmpty());
+  }
+
+  private List<String> restaurantIdsByName(double latitude, double longitude) {
+    return restaurantRepositoryService
+        .findRestaurantsByName(latitude, longitude, "dosa", NOON, 3.0).stream()
+        .map(Restaurant::getRestaurantId)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.models.RestaurantEntity;
+import com.crio.qeats.utils.FixtureHelpers;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(classes = {QEatsApplication.class},
+    properties = {"qeats.nearby.strategy=geo"})
+@DirtiesContext
+@ActiveProfiles("test")
+class GeoQueryNearbyRestaurantsFinderTest {
+
+  private static final String FIXTURES = "fixtures/exchanges";
+
+  @Autowired
+  private NearbyRestaurantsFinder nearbyRestaurantsFinder;
+  @Autowired
+  private RestaurantLocationBackfill restaurantLocationBackfill;
+  @Autowired
+  private MongoTemplate mongoTemplate;
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @AfterEach
+  void teardown() {
+    mongoTemplate.dropCollection("restaurants");
+  }
+
+  @Test
+  void nearSphereReturnsRestaurantsWithinRadiusNearestFirst() throws IOException {
+    for (RestaurantEntity restaurantEntity : listOfRestaurants()) {
+      mongoTemplate.save(restaurantEntity, "restaurants");
+    }
+    restaurantLocationBackfill.backfill();
+
+    List<String> restaurantIds = nearbyRestaurantsFinder.findRestaurantsNear(20.0, 30.0, 3.0)
+        .stream().map(RestaurantEntity::getRestaurantId).collect(Collectors.toList());
+
+    assertEquals(2, restaurantIds.size());
+    assertEquals("11", restaurantIds.get(0));
+    assertEquals("12", restaurantIds.get(1));
+  }
+
+  @Test
+  void cacheLoadsAreNotCappedLikeLookups() {
+    for (int i = 0; i < GeoQueryNearbyRestaurantsFinder.MAX_RESULTS + 20; i++) {
+      RestaurantEntity restaurantEntity = new RestaurantEntity();
+      restaurantEntity.setRestaurantId(String.valueOf(i));
+      restaurantEntity.setLatitude(20.0 + i * 0.00001);
+      restaurantEntity.setLongitude(30.0);
+      mongoTemplate.save(restaurantEntity, "restaurants");
+    }
+    restaurantLocationBackfill.backfill();
+
+    assertEquals(GeoQueryNearbyRestaurantsFinder.MAX_RESULTS,
+        nearbyRestaurantsFinder.findRestaurantsNear(20.0, 30.0, 1.0).size());
+    assertEquals(GeoQueryNearbyRestaurantsFinder.MAX_RESULTS + 20,
+        nearbyRestaurantsFinder.findAllRestaurantsNear(20.0, 30.0, 1.0).size());
+  }
+
+  @Test
+  void backfillAddsLocationToOldDocuments() {
+    mongoTemplate.getCollection("restaurants").insertOne(new Document("_id", "old")
+        .append("restaurantId", "old").append("latitude", 20.0).append("longitude", 30.0));
+
+    restaurantLocationBackfill.backfill();
+
+    Document backfilled = mongoTemplate.findOne(
+        new Query(Criteria.where("_id").is("old")), Document.class, "restaurants");
+    assertNotNull(backfilled);
+    Document location = (Document) backfilled.get("location");
+    assertEquals("Point", location.get("type"));
+    assertTrue(location.get("coordinates").toString().startsWith("[30.0"));
+    assertEquals(1, nearbyRestaurantsFinder.findRestaurantsNear(20.0, 30.0, 1.0).size());
+  }
+
+  private List<RestaurantEntity> listOfRestaurants() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<RestaurantEntity>>() {
+    });
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.repositoryservices;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.configs.RedisCircuitBreaker;
+import com.crio.qeats.configs.RedisConfiguration;
+import com.crio.qeats.index.RedisGeoIndex;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.models.RestaurantEntity;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+@ExtendWith(MockitoExtension.class)
+class RedisGeoNearbyRestaurantsFinderTest {
+
+  private final List<RestaurantEntity> redisRestaurants =
+      Collections.singletonList(new RestaurantEntity());
+  private final List<RestaurantEntity> localRestaurants =
+      Collections.singletonList(new RestaurantEntity());
+
+  @InjectMocks
+  private RedisGeoNearbyRestaurantsFinder redisGeoNearbyRestaurantsFinder;
+
+  @Mock
+  private RedisGeoIndex redisGeoIndex;
+
+  @Mock
+  private RestaurantGeoIndex restaurantGeoIndex;
+
+  @Mock
+  private RedisConfiguration redisConfiguration;
+
+  @Mock
+  private RedisCircuitBreaker redisCircuitBreaker;
+
+  @Test
+  void restaurantsComeFromRedisOnceLoaded() throws IOException {
+    when(redisGeoIndex.isLoaded()).thenReturn(true);
+    when(redisConfiguration.isCacheAvailable()).thenReturn(true);
+    when(redisGeoIndex.findWithin(20.0, 30.0, 3.0,
+        RedisGeoNearbyRestaurantsFinder.MAX_RESULTS)).thenReturn(redisRestaurants);
+
+    assertSame(redisRestaurants,
+        redisGeoNearbyRestaurantsFinder.findRestaurantsNear(20.0, 30.0, 3.0));
+    verify(redisCircuitBreaker).recordSuccess();
+    assertFalse(redisGeoNearbyRestaurantsFinder.isCacheable());
+  }
+
+  @Test
+  void inMemoryIndexIsUsedUntilLoaded() throws IOException {
+    when(redisGeoIndex.isLoaded()).thenReturn(false);
+    when(restaurantGeoIndex.findWithin(20.0, 30.0, 3.0)).thenReturn(localRestaurants);
+
+    assertSame(localRestaurants,
+        redisGeoNearbyRestaurantsFinder.findRestaurantsNear(20.0, 30.0, 3.0));
+    verify(redisGeoIndex, never()).findWithin(anyDouble(), anyDouble(), anyDouble(), anyInt());
+  }
+
+  @Test
+  void inMemoryIndexIsUsedWhileRedisIsDown() throws IOException {
+    when(redisGeoIndex.isLoaded()).thenReturn(true);
+    when(redisConfiguration.isCacheAvailable()).thenReturn(true);
+    when(redisGeoIndex.findWithin(20.0, 30.0, 3.0, RedisGeoNearbyRestaurantsFinder.MAX_RESULTS))
+        .thenThrow(new JedisConnectionException("Connection refused"));
+    when(restaurantGeoIndex.findWithin(20.0, 30.0, 3.0)).thenReturn(localRestaurants);
+
+    assertSame(localRestaurants,
+        redisGeoNearbyRestaurantsFinder.findRestaurantsNear(20.0, 30.0, 3.0));
+    verify(redisCircuitBreaker).recordFailure();
+  }
+}
@@ -2,14 +2,18 @@ package com.crio.qeats.repositoryservices;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import ch.hsr.geohash.GeoHash;
 import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.cache.LocalNearbyCache;
+import com.crio.qeats.cache.SearchResultCache;
 import com.crio.qeats.configs.RedisConfiguration;
 import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.index.RestaurantGeoIndex;
 import com.crio.qeats.models.RestaurantEntity;
 import com.crio.qeats.repositories.RestaurantRepository;
 import com.crio.qeats.utils.FixtureHelpers;
@@ -47,6 +51,12 @@ class RestaurantRepositoryServiceCacheTest {
   @Autowired
   private RedisConfiguration redisConfiguration;
   @Autowired
+  private LocalNearbyCache localNearbyCache;
+  @Autowired
+  private SearchResultCache searchResultCache;
+  @Autowired
+  private RestaurantGeoIndex restaurantGeoIndex;
+  @Autowired
   private ObjectMapper objectMapper;
   @Autowired
   private Provider<ModelMapper> modelMapperProvider;
@@ -62,6 +72,9 @@ class RestaurantRepositoryServiceCacheTest {
   @AfterEach
   void teardown() {
     redisConfiguration.destroyCache();
+    localNearbyCache.invalidateAll();
+    searchResultCache.invalidateAll();
+    restaurantGeoIndex.invalidate();
   }
 
 
@@ -82,10 +95,46 @@ class RestaurantRepositoryServiceCacheTest {
     GeoHash geoHash = GeoHash.withCharacterPrecision(20.0, 30.0, 7);
 
     verify(mockRestaurantRepository, times(1)).findAll();
-    assertNotNull(jedis.get(geoHash.toBase32()));
+    assertNotNull(jedis.get(redisConfiguration.cacheKey(geoHash.toBase32())));
     assertEquals(2, allRestaurantsCloseBy.size());
-    assertEquals("11", allRestaurantsCloseBy.get(0).getRestaurantId());
-    assertEquals("12", allRestaurantsCloseBy.get(1).getRestaurantId());
+    // Closest first: 12 is about 2.3 km away, 11 about 3.0 km.
+    assertEquals("12", allRestaurantsCloseBy.get(0).getRestaurantId());
+    assertEquals("11", allRestaurantsCloseBy.get(1).getRestaurantId());
+  }
+
+  @Test
+  void cachedCellServesEveryTimeAndRadius() throws IOException {
+    when(mockRestaurantRepository.findAll()).thenReturn(listOfRestaurants());
+
+    List<Restaurant> openRestaurants = restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
+    List<Restaurant> closedRestaurants = restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(17, 59), 3.0);
+    List<Restaurant> widerRestaurants = restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 5.0);
+
+    verify(mockRestaurantRepository, times(1)).findAll();
+    assertEquals(2, openRestaurants.size());
+    assertEquals(0, closedRestaurants.size());
+    assertEquals(3, widerRestaurants.size());
+  }
+
+  @Test
+  void hotCellIsServedFromTheLocalCache() throws IOException {
+    when(mockRestaurantRepository.findAll()).thenReturn(listOfRestaurants());
+
+    restaurantRepositoryService.findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
+    Jedis jedis = redisConfiguration.getJedisPool().getResource();
+    jedis.flushAll();
+
+    List<Restaurant> allRestaurantsCloseBy = restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
+
+    // Neither read nor written back to Redis.
+    assertNull(jedis.get(
+        redisConfiguration.cacheKey(GeoHash.withCharacterPrecision(20.0, 30.0, 7).toBase32())));
+    assertEquals(2, allRestaurantsCloseBy.size());
+    verify(mockRestaurantRepository, times(1)).findAll();
   }
 
   private List<RestaurantEntity> listOfRestaurants() throws IOException {
@@ -9,6 +9,7 @@ package com.crio.qeats.repositoryservices;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.times;
@@ -16,16 +17,24 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.cache.LocalNearbyCache;
+import com.crio.qeats.cache.SearchResultCache;
+import com.crio.qeats.configs.MongoRoundTrips;
 import com.crio.qeats.configs.RedisConfiguration;
 import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.index.RestaurantGeoIndex;
+import com.crio.qeats.models.ItemEntity;
+import com.crio.qeats.models.MenuEntity;
 import com.crio.qeats.models.RestaurantEntity;
 import com.crio.qeats.repositories.RestaurantRepository;
 import com.crio.qeats.utils.FixtureHelpers;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.io.IOException;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import javax.inject.Provider;
@@ -63,6 +72,16 @@ public class RestaurantRepositoryServiceTest {
 
   @Autowired
   private RedisConfiguration redisConfiguration;
+  @Autowired
+  private LocalNearbyCache localNearbyCache;
+  @Autowired
+  private SearchResultCache searchResultCache;
+  @Autowired
+  private RestaurantGeoIndex restaurantGeoIndex;
+  @Autowired
+  private MongoRoundTrips mongoRoundTrips;
+  @Autowired
+  private MeterRegistry meterRegistry;
 
   @Value("${spring.redis.port}")
   private int redisPort;
@@ -89,6 +108,9 @@ public class RestaurantRepositoryServiceTest {
   void teardown() {
     mongoTemplate.dropCollection("restaurants");
     redisConfiguration.destroyCache();
+    localNearbyCache.invalidateAll();
+    searchResultCache.invalidateAll();
+    restaurantGeoIndex.invalidate();
   }
 
   @Test
@@ -102,11 +124,36 @@ public class RestaurantRepositoryServiceTest {
 
     verify(restaurantRepository, times(1)).findAll();
     assertEquals(2, allRestaurantsCloseBy.size());
-    assertEquals("11", allRestaurantsCloseBy.get(0).getRestaurantId());
-    assertEquals("12", allRestaurantsCloseBy.get(1).getRestaurantId());
+    // Closest first: 12 is about 2.3 km away, 11 about 3.0 km.
+    assertEquals("12", allRestaurantsCloseBy.get(0).getRestaurantId());
+    assertEquals("11", allRestaurantsCloseBy.get(1).getRestaurantId());
   }
 
 
+  @Test
+  void nearbyLookupStagesAreMetered() {
+    restaurantRepositoryService.findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 3.0);
+
+    for (String stage : Arrays.asList("cache", "filter", "mapping")) {
+      assertTrue(meterRegistry.get("qeats.stage.duration").tag("stage", stage)
+          .tag("operation", "nearby").timer().count() > 0);
+    }
+    assertTrue(meterRegistry.get("qeats.results").tag("operation", "nearby").summary()
+        .totalAmount() >= 2);
+  }
+
+  @Test
+  void limitKeepsOnlyTheNearestRestaurants() {
+    when(restaurantRepository.findAll()).thenReturn(allRestaurants);
+
+    List<Restaurant> nearestRestaurants = restaurantRepositoryService
+        .findAllRestaurantsCloseBy(20.0, 30.0, LocalTime.of(18, 1), 5.0, 1);
+
+    assertEquals(1, nearestRestaurants.size());
+    assertEquals("12", nearestRestaurants.get(0).getRestaurantId());
+    assertEquals(2.3, nearestRestaurants.get(0).getDistanceInKm(), 0.1);
+  }
+
   @Test
   void noRestaurantsNearBy(@Autowired MongoTemplate mongoTemplate) {
     assertNotNull(mongoTemplate);
@@ -177,6 +224,44 @@ public class RestaurantRepositoryServiceTest {
   }
 
 
+  @Test
+  void repeatedSearchesFromOneCellAreServedFromTheCache() {
+    doReturn(Optional.of(allRestaurants))
+        .when(restaurantRepository).findRestaurantsByNameExact(any());
+
+    List<Restaurant> firstRestaurantsList = restaurantRepositoryService
+        .findRestaurantsByName(20.8, 30.1, "A2B", LocalTime.of(20, 0), 5.0);
+    List<Restaurant> secondRestaurantsList = restaurantRepositoryService
+        .findRestaurantsByName(20.8001, 30.1001, " a2b ", LocalTime.of(20, 0), 5.0);
+
+    verify(restaurantRepository, times(1)).findRestaurantsByNameExact(any());
+    assertEquals(firstRestaurantsList.size(), secondRestaurantsList.size());
+  }
+  @Test
+  void itemSearchFetchesAllRestaurantsInOneQuery() throws IOException {
+    ItemEntity itemEntity = new ItemEntity();
+    itemEntity.setId("1");
+    itemEntity.setItemId("1");
+    itemEntity.setName("Chicken Briyani");
+    mongoTemplate.save(itemEntity, "items");
+    for (MenuEntity menuEntity : listOfMenus()) {
+      mongoTemplate.save(menuEntity, "menus");
+    }
+
+    List<Restaurant> foundRestaurantsList;
+    try (MongoRoundTrips.Scope roundTrips = mongoRoundTrips.begin("test")) {
+      foundRestaurantsList = restaurantRepositoryService
+          .findRestaurantsByItemName(20.0, 30.0, "Chicken Briyani", LocalTime.of(20, 0), 5.0);
+
+      // Exact items, partial items, menus and restaurants; not one query per restaurant.
+      assertEquals(4, roundTrips.getRoundTrips());
+    } finally {
+      mongoTemplate.dropCollection("items");
+      mongoTemplate.dropCollection("menus");
+    }
+    assertTrue(foundRestaurantsList.stream()
+        .allMatch(restaurant -> restaurant.getDistanceInKm() < 5.0));
+  }
 
   void searchedAttributesIsSubsetOfRetrievedRestaurantAttributes() {
   }
@@ -184,6 +269,14 @@ public class RestaurantRepositoryServiceTest {
   void searchedAttributesIsCaseInsensitive() {
   }
 
+  private List<MenuEntity> listOfMenus() throws IOException {
+    String fixture =
+        FixtureHelpers.fixture(FIXTURES + "/initial_data_set_menus.json");
+
+    return objectMapper.readValue(fixture, new TypeReference<List<MenuEntity>>() {
+    });
+  }
+
   private List<RestaurantEntity> listOfRestaurants() throws IOException {
     String fixture =
         FixtureHelpers.fixture(FIXTURES + "/initial_data_set_restaurants.json");
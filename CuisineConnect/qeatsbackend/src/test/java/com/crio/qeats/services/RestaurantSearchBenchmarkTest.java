@@ -0,0 +1,95 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.cache.NegativeCache;
+import com.crio.qeats.configs.QeatsMetrics;
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.repositoryservices.RestaurantRepositoryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+// Run with ./gradlew :qeatsbackend:benchmark
+@Tag("benchmark")
+class RestaurantSearchBenchmarkTest {
+
+  // Latency of each search source, roughly one Mongo query.
+  private static final long SOURCE_LATENCY_MILLIS = 20;
+  private static final int ROUNDS = 20;
+
+  @Test
+  void parallelSearchIsFasterThanSequential() {
+    RestaurantRepositoryService restaurantRepositoryService =
+        mock(RestaurantRepositoryService.class);
+    Answer<List<Restaurant>> slowSource = invocation -> {
+      Thread.sleep(SOURCE_LATENCY_MILLIS);
+      return Collections.emptyList();
+    };
+    when(restaurantRepositoryService.findRestaurantsByName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenAnswer(slowSource);
+    when(restaurantRepositoryService.findRestaurantsByAttributes(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenAnswer(slowSource);
+    when(restaurantRepositoryService.findRestaurantsByItemName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenAnswer(slowSource);
+    when(restaurantRepositoryService.findRestaurantsByItemAttributes(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenAnswer(slowSource);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    RestaurantServiceImpl restaurantService = new RestaurantServiceImpl();
+    ReflectionTestUtils.setField(restaurantService, "restaurantRepositoryService",
+        restaurantRepositoryService);
+    ReflectionTestUtils.setField(restaurantService, "negativeCache", mock(NegativeCache.class));
+    ReflectionTestUtils.setField(restaurantService, "qeatsMetrics",
+        new QeatsMetrics(new SimpleMeterRegistry()));
+    ReflectionTestUtils.setField(restaurantService, "searchExecutor", executor);
+    ReflectionTestUtils.setField(restaurantService, "searchDeadlineMillis", 1000L);
+
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    getRestaurantsRequest.setSearchFor("Briyani");
+    LocalTime currentTime = LocalTime.of(22, 0);
+
+    try {
+      long sequentialMillis = measure(() -> restaurantService
+          .findRestaurantsBySearchQuery(getRestaurantsRequest, currentTime).getRestaurants());
+      long parallelMillis = measure(() -> restaurantService
+          .findRestaurantsBySearchQueryMt(getRestaurantsRequest, currentTime).getRestaurants());
+
+      System.out.printf("Search with %d ms sources: sequential %d ms, parallel %d ms (%.1fx)%n",
+          SOURCE_LATENCY_MILLIS, sequentialMillis, parallelMillis,
+          (double) sequentialMillis / parallelMillis);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  // Average time of one search, after one warm-up search.
+  private static long measure(Supplier<List<Restaurant>> search) {
+    assertEquals(0, search.get().size());
+    long start = System.nanoTime();
+    for (int round = 0; round < ROUNDS; round++) {
+      search.get();
+    }
+    return (System.nanoTime() - start) / ROUNDS / 1_000_000;
+  }
+}
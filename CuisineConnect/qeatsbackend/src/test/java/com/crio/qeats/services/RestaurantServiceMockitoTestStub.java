@@ -8,6 +8,8 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.crio.qeats.cache.NegativeCache;
+import com.crio.qeats.configs.QeatsMetrics;
 import com.crio.qeats.dto.Restaurant;
 import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
@@ -45,6 +47,12 @@ public class RestaurantServiceMockitoTestStub {
   @Mock
   protected RestaurantRepositoryService restaurantRepositoryServiceMock;
 
+  @Mock
+  protected NegativeCache negativeCacheMock;
+
+  @Mock
+  protected QeatsMetrics qeatsMetricsMock;
+
   @BeforeEach
   public void initializeRestaurantObjects() throws IOException {
     String fixture =
@@ -0,0 +1,219 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import com.crio.qeats.cache.NegativeCache;
+import com.crio.qeats.configs.QeatsMetrics;
+import com.crio.qeats.dto.Restaurant;
+import com.crio.qeats.exchanges.GetRestaurantsRequest;
+import com.crio.qeats.repositoryservices.RestaurantRepositoryService;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class RestaurantServiceParallelSearchTest {
+
+  @InjectMocks
+  private RestaurantServiceImpl restaurantService;
+
+  @Mock
+  private RestaurantRepositoryService restaurantRepositoryServiceMock;
+
+  @Mock
+  private NegativeCache negativeCache;
+
+  @Mock
+  private QeatsMetrics qeatsMetrics;
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setup() {
+    executor = Executors.newFixedThreadPool(4);
+    ReflectionTestUtils.setField(restaurantService, "searchExecutor", executor);
+    ReflectionTestUtils.setField(restaurantService, "searchDeadlineMillis", 300L);
+  }
+
+  @AfterEach
+  void teardown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void mergesSourcesInServiceOrderWithoutDuplicates() {
+    when(restaurantRepositoryServiceMock.findRestaurantsByName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants("1"));
+    when(restaurantRepositoryServiceMock.findRestaurantsByAttributes(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants("2", "1"));
+    when(restaurantRepositoryServiceMock.findRestaurantsByItemName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants("3"));
+    when(restaurantRepositoryServiceMock.findRestaurantsByItemAttributes(anyDouble(),
+        anyDouble(), anyString(), any(LocalTime.class), anyDouble()))
+        .thenReturn(restaurants("4", "2"));
+
+    assertEquals(Arrays.asList("1", "2", "3", "4"), search());
+  }
+
+  @Test
+  void slowAndFailingSourcesAreLeftOut() {
+    when(restaurantRepositoryServiceMock.findRestaurantsByName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants("1"));
+    when(restaurantRepositoryServiceMock.findRestaurantsByAttributes(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble()))
+        .thenThrow(new IllegalStateException("down"));
+    when(restaurantRepositoryServiceMock.findRestaurantsByItemName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenAnswer(invocation -> {
+          Thread.sleep(5000);
+          return restaurants("3");
+        });
+    when(restaurantRepositoryServiceMock.findRestaurantsByItemAttributes(anyDouble(),
+        anyDouble(), anyString(), any(LocalTime.class), anyDouble()))
+        .thenReturn(restaurants("4"));
+
+    long start = System.currentTimeMillis();
+    List<String> restaurantIds = search();
+
+    assertEquals(Arrays.asList("1", "4"), restaurantIds);
+    assertTrue(System.currentTimeMillis() - start < 2000);
+  }
+
+  @Test
+  void sourcesRejectedBySaturatedExecutorAreLeftOut() {
+    AtomicInteger submitted = new AtomicInteger();
+    ReflectionTestUtils.setField(restaurantService, "searchExecutor", (Executor) command -> {
+      if (submitted.incrementAndGet() > 2) {
+        throw new RejectedExecutionException("saturated");
+      }
+      executor.execute(command);
+    });
+    when(restaurantRepositoryServiceMock.findRestaurantsByName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants("1"));
+    when(restaurantRepositoryServiceMock.findRestaurantsByAttributes(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants("2"));
+
+    assertEquals(Arrays.asList("1", "2"), search());
+    verify(restaurantRepositoryServiceMock, never()).findRestaurantsByItemName(anyDouble(),
+        anyDouble(), anyString(), any(LocalTime.class), anyDouble());
+  }
+
+  @Test
+  void searchesWithoutHitsAreRemembered() {
+    when(restaurantRepositoryServiceMock.findRestaurantsByName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants());
+    when(restaurantRepositoryServiceMock.findRestaurantsByAttributes(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants());
+    when(restaurantRepositoryServiceMock.findRestaurantsByItemName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants());
+    when(restaurantRepositoryServiceMock.findRestaurantsByItemAttributes(anyDouble(),
+        anyDouble(), anyString(), any(LocalTime.class), anyDouble()))
+        .thenReturn(restaurants());
+    when(restaurantRepositoryServiceMock.hasNoSearchCandidates(20.0, 30.0, "Test", 5.0))
+        .thenReturn(true);
+
+    assertEquals(Collections.emptyList(), search());
+    verify(negativeCache).recordNoSearchHits(NegativeCache.searchKey(20.0, 30.0, 5.0, "Test"));
+  }
+
+  @Test
+  void searchesWithOnlyClosedOrFartherMatchesAreNotRemembered() {
+    when(restaurantRepositoryServiceMock.findRestaurantsByName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants());
+    when(restaurantRepositoryServiceMock.findRestaurantsByAttributes(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants());
+    when(restaurantRepositoryServiceMock.findRestaurantsByItemName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants());
+    when(restaurantRepositoryServiceMock.findRestaurantsByItemAttributes(anyDouble(),
+        anyDouble(), anyString(), any(LocalTime.class), anyDouble()))
+        .thenReturn(restaurants());
+    when(restaurantRepositoryServiceMock.hasNoSearchCandidates(20.0, 30.0, "Test", 5.0))
+        .thenReturn(false);
+
+    assertEquals(Collections.emptyList(), search());
+    verify(negativeCache, never()).recordNoSearchHits(anyString());
+  }
+
+  @Test
+  void partialResultsWithoutHitsAreNotRemembered() {
+    when(restaurantRepositoryServiceMock.findRestaurantsByName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble()))
+        .thenThrow(new IllegalStateException("down"));
+    when(restaurantRepositoryServiceMock.findRestaurantsByAttributes(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants());
+    when(restaurantRepositoryServiceMock.findRestaurantsByItemName(anyDouble(), anyDouble(),
+        anyString(), any(LocalTime.class), anyDouble())).thenReturn(restaurants());
+    when(restaurantRepositoryServiceMock.findRestaurantsByItemAttributes(anyDouble(),
+        anyDouble(), anyString(), any(LocalTime.class), anyDouble()))
+        .thenReturn(restaurants());
+
+    assertEquals(Collections.emptyList(), search());
+    verify(negativeCache, never()).recordNoSearchHits(anyString());
+  }
+
+  @Test
+  void searchesKnownToHaveNoHitsDoNotQuery() {
+    when(negativeCache.hasNoSearchHits(NegativeCache.searchKey(20.0, 30.0, 5.0, " TEST ")))
+        .thenReturn(true);
+
+    assertEquals(Collections.emptyList(), search());
+    verifyZeroInteractions(restaurantRepositoryServiceMock);
+  }
+
+  @Test
+  void emptySearchDoesNotQuery() {
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    getRestaurantsRequest.setSearchFor("");
+
+    assertEquals(Collections.emptyList(), restaurantService
+        .findRestaurantsBySearchQueryMt(getRestaurantsRequest, LocalTime.of(22, 0))
+        .getRestaurants());
+  }
+
+  private List<String> search() {
+    GetRestaurantsRequest getRestaurantsRequest = new GetRestaurantsRequest(20.0, 30.0);
+    getRestaurantsRequest.setSearchFor("Test");
+
+    return restaurantService
+        .findRestaurantsBySearchQueryMt(getRestaurantsRequest, LocalTime.of(22, 0))
+        .getRestaurants().stream()
+        .map(Restaurant::getRestaurantId)
+        .collect(Collectors.toList());
+  }
+
+  private static List<Restaurant> restaurants(String... restaurantIds) {
+    return Arrays.stream(restaurantIds).map(restaurantId -> {
+      Restaurant restaurant = new Restaurant();
+      restaurant.setRestaurantId(restaurantId);
+      return restaurant;
+    }).collect(Collectors.toList());
+  }
+}
@@ -14,6 +14,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.crio.qeats.QEatsApplication;
+import com.crio.qeats.cache.NegativeCache;
+import com.crio.qeats.configs.QeatsMetrics;
 import com.crio.qeats.dto.Restaurant;
 import com.crio.qeats.exchanges.GetRestaurantsRequest;
 import com.crio.qeats.exchanges.GetRestaurantsResponse;
@@ -48,6 +50,10 @@ class RestaurantServiceTest {
   private RestaurantServiceImpl restaurantService;
   @MockBean
   private RestaurantRepositoryService restaurantRepositoryServiceMock;
+  @MockBean
+  private NegativeCache negativeCacheMock;
+  @MockBean
+  private QeatsMetrics qeatsMetricsMock;
   private ObjectMapper objectMapper;
 
   @BeforeEach
@@ -0,0 +1,44 @@
+/*
+ *
+ *  * Copyright (c) Crio.Do 2019. All rights reserved
+ *
+ */
+
+package com.crio.qeats.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import org.junit.jupiter.api.Test;
+
+class BoundedTopKTest {
+
+  @Test
+  void keepsTheSmallestElementsInOrder() {
+    BoundedTopK<Integer> topK = new BoundedTopK<>(3, Comparator.naturalOrder());
+    for (int element : new int[] {7, 3, 9, 1, 8, 2, 6}) {
+      topK.offer(element);
+    }
+
+    assertEquals(Arrays.asList(1, 2, 3), topK.toSortedList());
+  }
+
+  @Test
+  void fewerElementsThanTheLimit() {
+    BoundedTopK<Integer> topK = new BoundedTopK<>(5, Comparator.naturalOrder());
+    topK.offer(4);
+    topK.offer(2);
+
+    assertEquals(Arrays.asList(2, 4), topK.toSortedList());
+  }
+
+  @Test
+  void zeroLimitKeepsNothing() {
+    BoundedTopK<Integer> topK = new BoundedTopK<>(0, Comparator.naturalOrder());
+    topK.offer(1);
+
+    assertTrue(topK.toSortedList().isEmpty());
+  }
+}
@@ -9,8 +9,12 @@
 
 package com.crio.qeats.utils;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Random;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 
 class GeoUtilsTest {
@@ -29,4 +33,42 @@ class GeoUtilsTest {
     assertEquals(3.04, distanceBetweenA2bHsrAndA2bBtm, 0.1);
   }
 
+  @Test
+  public void batchSearchMatchesScalarDistance() {
+    Random random = new Random(42);
+    double[] latitudes = new double[10000];
+    double[] longitudes = new double[10000];
+    for (int i = 0; i < latitudes.length; i++) {
+      latitudes[i] = 12.9 + random.nextDouble() * 0.2 - 0.1;
+      longitudes[i] = 77.6 + random.nextDouble() * 0.2 - 0.1;
+    }
+
+    int[] indices = GeoUtils.findIndicesWithinKm(12.9, 77.6, 5.0, latitudes, longitudes,
+        GeoUtils.cosLatitudes(latitudes));
+
+    int[] expected = IntStream.range(0, latitudes.length)
+        .filter(i -> GeoUtils.findDistanceInKm(12.9, 77.6, latitudes[i], longitudes[i]) < 5.0)
+        .toArray();
+    assertArrayEquals(expected, indices);
+  }
+
+  @Test
+  public void batchSearchAcrossTheAntimeridian() {
+    double[] latitudes = {0.0, 0.0};
+    double[] longitudes = {-179.99, 170.0};
+
+    int[] indices = GeoUtils.findIndicesWithinKm(0.0, 179.99, 5.0, latitudes, longitudes,
+        GeoUtils.cosLatitudes(latitudes));
+
+    assertArrayEquals(new int[] {0}, indices);
+  }
+
+  @Test
+  public void degreeSpansOfARadiusReachTheCircle() {
+    double latitudeDelta = 5.0 / GeoUtils.KM_PER_DEGREE_OF_LATITUDE;
+
+    assertTrue(GeoUtils.findDistanceInKm(20.0, 30.0, 20.0 + latitudeDelta, 30.0) >= 5.0);
+    assertTrue(GeoUtils.findDistanceInKm(-60.0, 30.0, -60.0 - latitudeDelta, 30.0) >= 5.0);
+  }
+
 }